@@ -5,12 +5,14 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.practicum.interactionapi.feignClient.EventFeignClient;
 import ru.practicum.interactionapi.feignClient.UserFeignClient;
 
 @EnableDiscoveryClient
 @SpringBootApplication
 @EnableFeignClients(clients = {UserFeignClient.class, EventFeignClient.class})
+@EnableScheduling
 public class CommentServiceApplication {
 
 
@@ -10,8 +10,11 @@ import ru.practicum.commentservice.mapper.CommentMapper;
 import ru.practicum.commentservice.repository.CommentRepository;
 import ru.practicum.commentservice.dto.CommentDto;
 import ru.practicum.commentservice.model.Comment;
+import ru.practicum.commentservice.model.CounterOutbox;
+import ru.practicum.commentservice.repository.CounterOutboxRepository;
 import ru.practicum.interactionapi.exception.NotFoundException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,16 +26,20 @@ public class CommentAdminService {
 
     private final CommentRepository commentRepository;
     private final CommentMapper mapper;
+    private final CounterOutboxRepository outboxRepository;
 
     @Transactional
     public void deleteComment(Long commentId) {
         log.info("Удаление комментария администратором commentId={}", commentId);
 
-        if (!commentRepository.existsById(commentId)) {
-            throw new NotFoundException("Комментарий с id=" + commentId + " не найден");
-        }
+        Comment comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new NotFoundException("Комментарий с id=" + commentId + " не найден"));
 
         commentRepository.deleteById(commentId);
+        outboxRepository.save(CounterOutbox.builder()
+                .eventId(comment.getEventId())
+                .createdOn(LocalDateTime.now())
+                .build());
         log.info("Комментарий с id={} удален администратором", commentId);
     }
 
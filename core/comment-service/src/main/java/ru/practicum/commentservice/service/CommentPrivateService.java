@@ -12,6 +12,8 @@ import ru.practicum.commentservice.repository.CommentRepository;
 import ru.practicum.commentservice.dto.CommentDto;
 import ru.practicum.commentservice.dto.UpdateCommentDto;
 import ru.practicum.commentservice.model.Comment;
+import ru.practicum.commentservice.model.CounterOutbox;
+import ru.practicum.commentservice.repository.CounterOutboxRepository;
 import ru.practicum.interactionapi.dto.event.EventFullDto;
 import ru.practicum.interactionapi.dto.user.UserDto;
 import ru.practicum.interactionapi.enums.EventState;
@@ -35,6 +37,7 @@ public class CommentPrivateService {
     private final CommentMapper mapper;
     private final UserFeignClient userFeignClient;
     private final EventFeignClient eventFeignClient;
+    private final CounterOutboxRepository outboxRepository;
 
 
     private static final int EDIT_TIME_LIMIT_HOURS = 24; // Время для редактирования - 24 часа
@@ -62,6 +65,7 @@ public class CommentPrivateService {
         comment.setCreatedOn(LocalDateTime.now());
 
         Comment savedComment = commentRepository.save(comment);
+        notifyCounters(savedComment.getEventId());
 
         log.info("Комментарий создан с id={}", savedComment.getId());
         return mapper.toCommentDto(savedComment);
@@ -106,6 +110,7 @@ public class CommentPrivateService {
         }
 
         commentRepository.deleteById(commentId);
+        notifyCounters(comment.getEventId());
         log.info("Комментарий с id={} удален", commentId);
     }
 
@@ -125,4 +130,12 @@ public class CommentPrivateService {
                 .map(mapper::toCommentDto)
                 .collect(Collectors.toList());
     }
+
+    // Запись outbox в транзакции изменения комментария: event-service узнает о новом числе комментариев
+    private void notifyCounters(Long eventId) {
+        outboxRepository.save(CounterOutbox.builder()
+                .eventId(eventId)
+                .createdOn(LocalDateTime.now())
+                .build());
+    }
 }
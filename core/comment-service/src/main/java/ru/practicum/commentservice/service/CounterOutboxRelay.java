@@ -0,0 +1,65 @@
+package ru.practicum.commentservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.practicum.commentservice.model.CounterOutbox;
+import ru.practicum.commentservice.repository.CommentRepository;
+import ru.practicum.commentservice.repository.CounterOutboxRepository;
+import ru.practicum.interactionapi.dto.event.EventCountersDto;
+import ru.practicum.interactionapi.feignClient.EventFeignClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Отправка числа комментариев в event-service по записям counter_outbox — текущее значение,
+// а не разница. Записи удаляются только после успешного ответа event-service
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CounterOutboxRelay {
+
+    private static final long RELAY_LOCK = 0x636f6d6d656e74L;
+
+    private final CounterOutboxRepository outboxRepository;
+    private final CommentRepository commentRepository;
+    private final EventFeignClient eventFeignClient;
+
+    @Value("${counters.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${counters.outbox.interval-ms:1000}")
+    @Transactional
+    public void relay() {
+        if (!outboxRepository.tryLock(RELAY_LOCK)) {
+            return;
+        }
+        List<CounterOutbox> batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Long> eventIds = batch.stream().map(CounterOutbox::getEventId).distinct().toList();
+        long version = outboxRepository.currentVersion();
+        Map<Long, Long> comments = commentRepository.countCommentsByEventIds(eventIds).stream()
+                .collect(Collectors.toMap(result -> (Long) result[0], result -> (Long) result[1]));
+
+        try {
+            eventFeignClient.updateCounters(eventIds.stream()
+                    .map(eventId -> new EventCountersDto(eventId, null, comments.getOrDefault(eventId, 0L), version))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить счётчики комментариев {} событий в event-service: {}",
+                    eventIds.size(), e.getMessage());
+            return;
+        }
+        outboxRepository.deleteAllInBatch(batch);
+        log.debug("Отправлены счётчики комментариев событий {}", eventIds);
+    }
+}
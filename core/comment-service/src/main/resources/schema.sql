@@ -11,4 +11,13 @@ CREATE TABLE IF NOT EXISTS comments (
 
 CREATE INDEX IF NOT EXISTS idx_comments_event_id ON comments (event_id);
 CREATE INDEX IF NOT EXISTS idx_comments_author_id ON comments (author_id);
-CREATE INDEX IF NOT EXISTS idx_comments_created_on ON comments (created_on);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_comments_created_on ON comments (created_on);
+
+-- Transactional outbox: события, у которых изменилось число комментариев.
+-- Записывается в транзакции изменения комментария, отправляется в event-service CounterOutboxRelay
+CREATE TABLE IF NOT EXISTS counter_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    event_id BIGINT NOT NULL,
+    created_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_counter_outbox PRIMARY KEY (id)
+);
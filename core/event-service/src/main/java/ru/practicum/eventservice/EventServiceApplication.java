@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.practicum.interactionapi.feignClient.*;
 
 @EnableDiscoveryClient
 @SpringBootApplication
+@EnableScheduling
 @EnableFeignClients(clients = {UserFeignClient.class, CommentFeignClient.class, StatsFeignClient.class, LocationFeignClient.class, RequestFeignClient.class})
 public class EventServiceApplication {
 
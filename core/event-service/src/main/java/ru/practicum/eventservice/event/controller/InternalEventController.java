@@ -7,12 +7,18 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import ru.practicum.eventservice.event.service.EventCountersService;
 import ru.practicum.eventservice.event.service.EventPublicService;
+import ru.practicum.interactionapi.dto.event.EventCountersDto;
 import ru.practicum.interactionapi.dto.event.EventFullDto;
 
+import java.util.List;
+
 
 @RestController
 @RequestMapping("/internal/events")
@@ -21,6 +27,7 @@ import ru.practicum.interactionapi.dto.event.EventFullDto;
 public class InternalEventController {
 
     private final EventPublicService eventPublicService;
+    private final EventCountersService eventCountersService;
 
     @GetMapping("/{eventId}")
     public EventFullDto eventById(@PathVariable Long eventId) {
@@ -30,6 +37,12 @@ public class InternalEventController {
         return eventPublicService.getEventByIdTheRequest(eventId, "request.getRemoteAddr()", "request.getRequestURI()");
     }
 
+    @PostMapping("/counters")
+    public void updateCounters(@RequestBody List<EventCountersDto> counters) {
+        log.info("POST /internal/events/counters - обновление счётчиков {} событий", counters.size());
+        eventCountersService.apply(counters);
+    }
+
 }
 
 
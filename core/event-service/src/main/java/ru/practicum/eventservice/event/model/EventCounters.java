@@ -0,0 +1,6 @@
+package ru.practicum.eventservice.event.model;
+
+public record EventCounters(long confirmedRequests, long commentsCount) {
+
+    public static final EventCounters EMPTY = new EventCounters(0, 0);
+}
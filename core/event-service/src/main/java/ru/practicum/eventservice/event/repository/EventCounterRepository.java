@@ -0,0 +1,153 @@
+package ru.practicum.eventservice.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.eventservice.event.model.EventCounters;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class EventCounterRepository {
+
+    // Значение применяется, только если его версия новее сохранённой: повтор и опоздавшая
+    // отправка из outbox не откатывают счётчик назад
+    private static final String UPDATE_CONFIRMED = """
+            INSERT INTO event_counters (event_id, confirmed_requests, confirmed_version, updated_on)
+            SELECT :eventId, :value, :version, :now WHERE EXISTS (SELECT 1 FROM events WHERE id = :eventId)
+            ON CONFLICT (event_id) DO UPDATE
+            SET confirmed_requests = EXCLUDED.confirmed_requests,
+                confirmed_version = EXCLUDED.confirmed_version,
+                updated_on = EXCLUDED.updated_on
+            WHERE event_counters.confirmed_version < EXCLUDED.confirmed_version
+            """;
+
+    private static final String UPDATE_COMMENTS = """
+            INSERT INTO event_counters (event_id, comments_count, comments_version, updated_on)
+            SELECT :eventId, :value, :version, :now WHERE EXISTS (SELECT 1 FROM events WHERE id = :eventId)
+            ON CONFLICT (event_id) DO UPDATE
+            SET comments_count = EXCLUDED.comments_count,
+                comments_version = EXCLUDED.comments_version,
+                updated_on = EXCLUDED.updated_on
+            WHERE event_counters.comments_version < EXCLUDED.comments_version
+            """;
+
+    // Сверка не перезаписывает строку, обновлённую из outbox после начала сверки
+    private static final String RECONCILE = """
+            INSERT INTO event_counters (event_id, confirmed_requests, comments_count, updated_on)
+            VALUES (:eventId, :confirmed, :comments, :now)
+            ON CONFLICT (event_id) DO UPDATE
+            SET confirmed_requests = EXCLUDED.confirmed_requests,
+                comments_count = EXCLUDED.comments_count,
+                updated_on = EXCLUDED.updated_on
+            WHERE event_counters.updated_on < :startedAt
+              AND (event_counters.confirmed_requests <> EXCLUDED.confirmed_requests
+                   OR event_counters.comments_count <> EXCLUDED.comments_count)
+            """;
+
+    // Строки не создаются: отсутствие строки означает, что счётчики заявок и комментариев ещё
+    // не получены, и чтение запрашивает их у сервисов. Событие без строки получит просмотры
+    // на следующем проходе после того, как строку создаст init или сверка
+    private static final String UPDATE_VIEWS = """
+            UPDATE event_counters SET views = ?
+            WHERE event_id = ? AND views <> ?
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Map<Long, EventCounters> findByEventIds(List<Long> eventIds) {
+        Map<Long, EventCounters> counters = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return counters;
+        }
+        jdbcTemplate.query("SELECT event_id, confirmed_requests, comments_count FROM event_counters " +
+                        "WHERE event_id IN (:eventIds)",
+                new MapSqlParameterSource("eventIds", eventIds),
+                (RowCallbackHandler) rs -> counters.put(rs.getLong("event_id"),
+                        new EventCounters(rs.getLong("confirmed_requests"), rs.getLong("comments_count"))));
+        return counters;
+    }
+
+    // Новое событие: строка с нулями и нулевыми версиями, любое значение из outbox её обновит
+    public void init(Long eventId) {
+        jdbcTemplate.update("INSERT INTO event_counters (event_id, updated_on) VALUES (:eventId, :now) " +
+                        "ON CONFLICT (event_id) DO NOTHING",
+                new MapSqlParameterSource()
+                        .addValue("eventId", eventId)
+                        .addValue("now", Timestamp.valueOf(LocalDateTime.now())));
+    }
+
+    public void updateConfirmed(long eventId, long value, long version) {
+        jdbcTemplate.update(UPDATE_CONFIRMED, versioned(eventId, value, version));
+    }
+
+    public void updateComments(long eventId, long value, long version) {
+        jdbcTemplate.update(UPDATE_COMMENTS, versioned(eventId, value, version));
+    }
+
+    // Возвращает true, если значение сохранено, то есть строки не было или она разошлась с источниками
+    public boolean reconcile(long eventId, EventCounters counters, LocalDateTime startedAt) {
+        return jdbcTemplate.update(RECONCILE, new MapSqlParameterSource()
+                .addValue("eventId", eventId)
+                .addValue("confirmed", counters.confirmedRequests())
+                .addValue("comments", counters.commentsCount())
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                .addValue("startedAt", Timestamp.valueOf(startedAt))) > 0;
+    }
+
+    // Следующая порция id событий для сверки, по возрастанию id
+    public List<Long> findEventIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM events WHERE id > :afterId ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+
+    // Следующая порция id событий без строки в event_counters, по возрастанию id
+    public List<Long> findEventIdsWithoutCountersAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT e.id FROM events e WHERE e.id > :afterId " +
+                        "AND NOT EXISTS (SELECT 1 FROM event_counters c WHERE c.event_id = e.id) " +
+                        "ORDER BY e.id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+
+    // Просмотры не участвуют в сверке по updated_on, поэтому при обновлении её не сдвигают
+    public void updateViews(Map<Long, Long> views) {
+        List<Map.Entry<Long, Long>> rows = List.copyOf(views.entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_VIEWS, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+            ps.setLong(3, row.getValue());
+        });
+    }
+
+    // Следующая порция id опубликованных событий для синхронизации просмотров
+    public List<Long> findPublishedEventIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM events WHERE state = 'PUBLISHED' AND id > :afterId " +
+                        "ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+
+    private MapSqlParameterSource versioned(long eventId, long value, long version) {
+        return new MapSqlParameterSource()
+                .addValue("eventId", eventId)
+                .addValue("value", value)
+                .addValue("version", version)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.eventservice.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.eventservice.event.model.EventSort;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Поиск опубликованных событий, который не выражается через JPQL: по тексту через
+// events.text_vector (GIN-индекс по аннотации и описанию), по наличию свободных мест и с сортировкой
+// по просмотрам из event_counters
+@Repository
+@RequiredArgsConstructor
+public class EventSearchRepository {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Каждое слово запроса ищется как префикс ("конц" найдёт "концерт"), все слова обязательны.
+    // Подстрока из середины слова ("церт") в отличие от прежнего LIKE '%text%' не находится.
+    // В запросе остаются только буквы и цифры, поэтому синтаксис tsquery из текста не попадает
+    static String toTsQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        String query = SEPARATORS.splitAsStream(text.toLowerCase(Locale.ROOT))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    // Id событий страницы. Без sort события с текстом упорядочены по релевантности, без текста — по id.
+    // Текст без лексем (только стоп-слова вроде "и в на" или знаки) даёт пустой tsquery, который
+    // ничего не находит, поэтому для него остаётся прежний поиск подстроки в аннотации и описании.
+    // Событие без строки event_counters (ещё не созданной сверкой) при VIEWS считается событием
+    // без просмотров, а при onlyAvailable остаётся в выдаче: его заявки проверяет вызывающий
+    public List<Long> findPublishedIds(String text, List<Long> categories, Boolean paid,
+                                       LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                       boolean onlyAvailable, EventSort sort, long offset, int limit) {
+        String tsQuery = toTsQuery(text);
+        boolean fullText = tsQuery != null && hasLexemes(tsQuery);
+        boolean substring = !fullText && text != null && !text.isEmpty();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("query", tsQuery)
+                .addValue("text", text)
+                .addValue("rangeStart", Timestamp.valueOf(rangeStart))
+                .addValue("rangeEnd", Timestamp.valueOf(rangeEnd))
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        String sql = "SELECT e.id FROM events e";
+        if (fullText) {
+            sql += " CROSS JOIN to_tsquery('russian', :query) q";
+        }
+        if (sort == EventSort.VIEWS || onlyAvailable) {
+            sql += " LEFT JOIN event_counters c ON c.event_id = e.id";
+        }
+        sql += " WHERE e.state = 'PUBLISHED' AND e.event_date >= :rangeStart AND e.event_date <= :rangeEnd";
+        if (fullText) {
+            sql += " AND e.text_vector @@ q";
+        } else if (substring) {
+            sql += " AND (LOWER(e.annotation) LIKE '%' || LOWER(:text) || '%'" +
+                    " OR LOWER(e.description) LIKE '%' || LOWER(:text) || '%')";
+        }
+        if (categories != null) {
+            if (categories.isEmpty()) {
+                return List.of();
+            }
+            sql += " AND e.category_id IN (:categories)";
+            params.addValue("categories", categories);
+        }
+        if (onlyAvailable) {
+            sql += " AND (COALESCE(e.participant_limit, 0) = 0 OR c.event_id IS NULL " +
+                    "OR c.confirmed_requests < e.participant_limit)";
+        }
+        if (paid != null) {
+            sql += " AND e.paid = :paid";
+            params.addValue("paid", paid);
+        }
+        if (sort == EventSort.EVENT_DATE) {
+            sql += " ORDER BY e.event_date, e.id";
+        } else if (sort == EventSort.VIEWS) {
+            sql += " ORDER BY COALESCE(c.views, 0), e.id";
+        } else if (fullText) {
+            sql += " ORDER BY ts_rank_cd(e.text_vector, q) DESC, e.id";
+        } else {
+            sql += " ORDER BY e.id";
+        }
+        sql += " OFFSET :offset LIMIT :limit";
+        return jdbcTemplate.queryForList(sql, params, Long.class);
+    }
+
+    private boolean hasLexemes(String tsQuery) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT numnode(to_tsquery('russian', :query)) > 0",
+                new MapSqlParameterSource("query", tsQuery), Boolean.class));
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.eventservice.event.service;
+
+import feign.RetryableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.practicum.interactionapi.exception.StatsServerUnavailable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Параллельные вызовы соседних сервисов при сборке DTO событий: ограниченный пул и таймаут
+// на каждый необязательный вызов. Таймаут не прерывает сам HTTP-запрос, он лишь перестаёт его
+// ждать, поэтому при зависшем сервисе пул заполняется и новые вызовы сразу получают значение
+// по умолчанию. Обязательные вызовы в пул не попадают
+@Component
+@Slf4j
+public class EnrichmentExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public EnrichmentExecutor(@Value("${event.enrichment.pool-size:16}") int poolSize,
+                              @Value("${event.enrichment.queue-capacity:64}") int queueCapacity,
+                              @Value("${event.enrichment.timeout-ms:2000}") long timeoutMs) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "event-enrichment-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Необязательные данные: при ошибке, таймауте или переполнении пула — fallback
+    public <T> CompletableFuture<T> optional(String name, Supplier<T> call, T fallback) {
+        return submit(call).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("{}: данные не получены, используется значение по умолчанию ({})", name, cause.toString());
+            return fallback;
+        });
+    }
+
+    // Обязательные данные: вызов в потоке вызывающего, чтобы занятый необязательными вызовами
+    // пул не превращал его в ошибку. Таймаут и недоступность сервиса (RetryableException)
+    // передаются так же, как ответ 500 соседнего сервиса из ErrorDecoders
+    public <T> T required(String name, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (RetryableException e) {
+            throw new StatsServerUnavailable(name + ": сервис не ответил", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, executor).orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import ru.practicum.interactionapi.dto.LocationDto;
 import ru.practicum.interactionapi.dto.event.EventFullDto;
 import ru.practicum.eventservice.event.dto.UpdateEventAdminRequest;
 import ru.practicum.eventservice.event.model.Event;
+import ru.practicum.eventservice.event.model.EventCounters;
 import ru.practicum.interactionapi.enums.EventState;
 import ru.practicum.eventservice.event.model.StateAction;
 import ru.practicum.eventservice.mapper.EventMapper;
@@ -19,9 +20,7 @@ import ru.practicum.eventservice.event.repository.EventRepository;
 import ru.practicum.interactionapi.exception.ConflictException;
 import ru.practicum.interactionapi.exception.NotFoundException;
 import ru.practicum.interactionapi.exception.ValidationException;
-import ru.practicum.interactionapi.feignClient.CommentFeignClient;
 import ru.practicum.interactionapi.feignClient.LocationFeignClient;
-import ru.practicum.interactionapi.feignClient.RequestFeignClient;
 
 
 import java.time.LocalDateTime;
@@ -40,9 +39,8 @@ public class EventAdminService {
     private final CategoryService categoryService;
 
     private final EventMapper mapper;
-    private final RequestFeignClient requestFeignClient;
     private final LocationFeignClient locationFeignClient;
-    private final CommentFeignClient commentFeignClient;
+    private final EventCountersService eventCountersService;
 
     public List<EventFullDto> getEvents(List<Long> users, List<EventState> states,
                                         List<Long> categories, LocalDateTime rangeStart,
@@ -147,10 +145,9 @@ public class EventAdminService {
     }
 
     private EventFullDto convertToEventFullDto(Event event) {
-        Long confirmedRequests = requestFeignClient.countConfirmedRequestsByEventId(event.getId());
-        Long commentsCount = commentFeignClient.countByEventId(event.getId());
+        EventCounters counters = eventCountersService.getCounters(event.getId());
         LocationDto locationDto = locationFeignClient.getLocation(event.getLocation());
-        return mapper.toEventFullDto(event, confirmedRequests, 0L, commentsCount, locationDto);
+        return mapper.toEventFullDto(event, counters.confirmedRequests(), 0L, counters.commentsCount(), locationDto);
     }
 
     private List<EventFullDto> convertToEventFullDtoList(List<Event> events) {
@@ -162,8 +159,7 @@ public class EventAdminService {
                 .map(Event::getId)
                 .collect(Collectors.toList());
 
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(eventIds);
-        Map<Long, Long> commentsCountMap = getCommentsCountMap(eventIds);
+        Map<Long, EventCounters> counters = eventCountersService.getCounters(eventIds);
 
 
         List<Long> locationIds = events.stream()
@@ -174,13 +170,16 @@ public class EventAdminService {
 
 
         return events.stream()
-                .map(event -> mapper.toEventFullDto(
-                        event,
-                        confirmedRequestsMap.getOrDefault(event.getId(), 0L),
-                        0L, // views пока 0
-                        commentsCountMap.getOrDefault(event.getId(), 0L),
-                        locationDtoMap.get(event.getLocation())
-                ))
+                .map(event -> {
+                    EventCounters eventCounters = counters.getOrDefault(event.getId(), EventCounters.EMPTY);
+                    return mapper.toEventFullDto(
+                            event,
+                            eventCounters.confirmedRequests(),
+                            0L, // views пока 0
+                            eventCounters.commentsCount(),
+                            locationDtoMap.get(event.getLocation())
+                    );
+                })
                 .collect(Collectors.toList());
     }
 
@@ -190,27 +189,4 @@ public class EventAdminService {
                 .collect(Collectors.toMap(locationDto -> locationDto.getId(), locationDto -> locationDto
                 ));
     }
-
-    private Map<Long, Long> getConfirmedRequestsMap(List<Long> eventIds) {
-        List<Object[]> results = requestFeignClient.countConfirmedRequestsByEventIds(eventIds);
-        return results.stream()
-                .collect(Collectors.toMap(
-                        result -> (Long.parseLong(result[0].toString())),
-                        result -> (Long.parseLong(result[1].toString()))
-                ));
-    }
-
-    private Map<Long, Long> getCommentsCountMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        return commentFeignClient.countCommentsByEventIds(eventIds)
-                .stream()
-                .collect(Collectors.toMap(
-                        result -> (Long) result[0],
-                        result -> (Long) result[1]
-                ));
-
-    }
 }
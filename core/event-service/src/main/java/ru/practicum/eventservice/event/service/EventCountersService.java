@@ -0,0 +1,197 @@
+package ru.practicum.eventservice.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.practicum.eventservice.event.model.EventCounters;
+import ru.practicum.eventservice.event.repository.EventCounterRepository;
+import ru.practicum.interactionapi.dto.event.EventCountersDto;
+import ru.practicum.interactionapi.feignClient.CommentFeignClient;
+import ru.practicum.interactionapi.feignClient.RequestFeignClient;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Число подтверждённых заявок и комментариев событий из локальной таблицы event_counters.
+// Таблицу обновляют request-service и comment-service через свои outbox; прежние запросы
+// к ним остаются для событий без строки и для периодической сверки
+@Service
+@Slf4j
+public class EventCountersService {
+
+    private final EventCounterRepository counterRepository;
+    private final RequestFeignClient requestFeignClient;
+    private final CommentFeignClient commentFeignClient;
+    private final EnrichmentExecutor enrichment;
+    private final boolean reconcileEnabled;
+    private final int reconcileBatchSize;
+
+    // Позиция сверки: каждый запуск проверяет следующую порцию событий, по кругу
+    private long reconcileAfterId;
+    // Строки для всех событий, созданных до появления таблицы, уже заведены
+    private boolean backfilled;
+
+    public EventCountersService(EventCounterRepository counterRepository,
+                                RequestFeignClient requestFeignClient,
+                                CommentFeignClient commentFeignClient,
+                                EnrichmentExecutor enrichment,
+                                @Value("${event.counters.reconcile.enabled:true}") boolean reconcileEnabled,
+                                @Value("${event.counters.reconcile.batch-size:200}") int reconcileBatchSize) {
+        this.counterRepository = counterRepository;
+        this.requestFeignClient = requestFeignClient;
+        this.commentFeignClient = commentFeignClient;
+        this.enrichment = enrichment;
+        this.reconcileEnabled = reconcileEnabled;
+        this.reconcileBatchSize = reconcileBatchSize;
+    }
+
+    // Событий без строки (созданных до появления таблицы и ещё не сверенных) нет в event_counters:
+    // для них значения запрашиваются у сервисов-источников, как раньше
+    public Map<Long, EventCounters> getCounters(List<Long> eventIds) {
+        Map<Long, EventCounters> counters = counterRepository.findByEventIds(eventIds);
+        List<Long> missing = eventIds.stream()
+                .filter(eventId -> !counters.containsKey(eventId))
+                .toList();
+        if (!missing.isEmpty()) {
+            counters.putAll(fetch(missing, true));
+        }
+        return counters;
+    }
+
+    public EventCounters getCounters(Long eventId) {
+        return getCounters(List.of(eventId)).getOrDefault(eventId, EventCounters.EMPTY);
+    }
+
+    @Transactional
+    public void init(Long eventId) {
+        counterRepository.init(eventId);
+    }
+
+    @Transactional
+    public void apply(List<EventCountersDto> updates) {
+        for (EventCountersDto update : updates) {
+            if (update.getConfirmedRequests() != null) {
+                counterRepository.updateConfirmed(update.getEventId(), update.getConfirmedRequests(),
+                        update.getVersion());
+            }
+            if (update.getCommentsCount() != null) {
+                counterRepository.updateComments(update.getEventId(), update.getCommentsCount(),
+                        update.getVersion());
+            }
+        }
+    }
+
+    // Сверка с сервисами-источниками: заполняет недостающие строки и исправляет расхождения,
+    // например после потери outbox-записей или ручного изменения данных.
+    // Пока не заведены строки всех прежних событий, запуск занимается только ими
+    @Scheduled(fixedDelayString = "${event.counters.reconcile.interval-ms:60000}",
+            initialDelayString = "${event.counters.reconcile.initial-delay-ms:30000}")
+    public void reconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        if (!backfilled) {
+            backfill();
+            return;
+        }
+        List<Long> eventIds = counterRepository.findEventIdsAfter(reconcileAfterId, reconcileBatchSize);
+        if (eventIds.isEmpty()) {
+            reconcileAfterId = 0;
+            return;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        Map<Long, EventCounters> actual;
+        try {
+            actual = fetch(eventIds, false);
+        } catch (RuntimeException e) {
+            log.warn("Сверка счётчиков событий отложена: {}", e.getMessage());
+            return;
+        }
+
+        int fixed = 0;
+        for (Long eventId : eventIds) {
+            if (counterRepository.reconcile(eventId, actual.getOrDefault(eventId, EventCounters.EMPTY), startedAt)) {
+                fixed++;
+            }
+        }
+        if (fixed > 0) {
+            log.info("Сверка счётчиков: обновлено {} из {} событий", fixed, eventIds.size());
+        }
+        reconcileAfterId = eventIds.get(eventIds.size() - 1);
+    }
+
+    // Заводит строки порциями до тех пор, пока события без строки не закончатся; при ошибке
+    // сервиса-источника продолжает со следующего запуска сверки
+    private void backfill() {
+        long afterId = 0;
+        int created = 0;
+        while (true) {
+            List<Long> eventIds = counterRepository.findEventIdsWithoutCountersAfter(afterId, reconcileBatchSize);
+            if (eventIds.isEmpty()) {
+                break;
+            }
+
+            LocalDateTime startedAt = LocalDateTime.now();
+            Map<Long, EventCounters> actual;
+            try {
+                actual = fetch(eventIds, false);
+            } catch (RuntimeException e) {
+                log.warn("Заполнение счётчиков событий отложено: {}", e.getMessage());
+                return;
+            }
+            for (Long eventId : eventIds) {
+                counterRepository.reconcile(eventId, actual.getOrDefault(eventId, EventCounters.EMPTY), startedAt);
+            }
+
+            created += eventIds.size();
+            afterId = eventIds.get(eventIds.size() - 1);
+        }
+        backfilled = true;
+        log.info("Счётчики заведены для {} событий без строки в event_counters", created);
+    }
+
+    // optional = true: при недоступности сервиса значение нулевое; иначе ошибка передаётся дальше
+    private Map<Long, EventCounters> fetch(List<Long> eventIds, boolean optional) {
+        Map<Long, Long> confirmedMap;
+        Map<Long, Long> commentsMap;
+        if (optional) {
+            CompletableFuture<Map<Long, Long>> confirmed =
+                    enrichment.optional("Подтверждённые заявки", () -> fetchConfirmed(eventIds), Map.of());
+            CompletableFuture<Map<Long, Long>> comments =
+                    enrichment.optional("Комментарии", () -> fetchComments(eventIds), Map.of());
+            confirmedMap = confirmed.join();
+            commentsMap = comments.join();
+        } else {
+            confirmedMap = enrichment.required("Подтверждённые заявки", () -> fetchConfirmed(eventIds));
+            commentsMap = enrichment.required("Комментарии", () -> fetchComments(eventIds));
+        }
+        Map<Long, EventCounters> counters = new HashMap<>();
+        for (Long eventId : eventIds) {
+            counters.put(eventId, new EventCounters(confirmedMap.getOrDefault(eventId, 0L),
+                    commentsMap.getOrDefault(eventId, 0L)));
+        }
+        return counters;
+    }
+
+    private Map<Long, Long> fetchConfirmed(List<Long> eventIds) {
+        return requestFeignClient.countConfirmedRequestsByEventIds(eventIds).stream()
+                .collect(Collectors.toMap(
+                        result -> Long.parseLong(result[0].toString()),
+                        result -> Long.parseLong(result[1].toString())));
+    }
+
+    private Map<Long, Long> fetchComments(List<Long> eventIds) {
+        return commentFeignClient.countCommentsByEventIds(eventIds).stream()
+                .collect(Collectors.toMap(
+                        result -> Long.parseLong(result[0].toString()),
+                        result -> Long.parseLong(result[1].toString())));
+    }
+}
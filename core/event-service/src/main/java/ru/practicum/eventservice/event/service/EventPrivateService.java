@@ -13,6 +13,7 @@ import ru.practicum.eventservice.event.dto.EventShortDto;
 import ru.practicum.eventservice.event.dto.NewEventDto;
 import ru.practicum.eventservice.event.dto.UpdateEventUserRequest;
 import ru.practicum.eventservice.event.model.Event;
+import ru.practicum.eventservice.event.model.EventCounters;
 import ru.practicum.eventservice.mapper.EventMapper;
 
 import ru.practicum.interactionapi.dto.event.EventRequestStatusUpdateRequest;
@@ -26,7 +27,6 @@ import ru.practicum.interactionapi.enums.ExceptionStatus;
 import ru.practicum.interactionapi.exception.ConflictException;
 import ru.practicum.interactionapi.exception.NotFoundException;
 import ru.practicum.interactionapi.exception.ValidationException;
-import ru.practicum.interactionapi.feignClient.CommentFeignClient;
 import ru.practicum.interactionapi.feignClient.LocationFeignClient;
 import ru.practicum.interactionapi.feignClient.RequestFeignClient;
 import ru.practicum.interactionapi.feignClient.UserFeignClient;
@@ -49,7 +49,7 @@ public class EventPrivateService {
     private final UserFeignClient userFeignClient;
     private final LocationFeignClient locationFeignClient;
     private final RequestFeignClient requestFeignClient;
-    private final CommentFeignClient commentFeignClient;
+    private final EventCountersService eventCountersService;
 
 
     public List<ParticipationRequestDto> getRequestsForUserEvent(Long userId, Long eventId) {
@@ -125,10 +125,9 @@ public class EventPrivateService {
         event.setState(EventState.PENDING);
 
         Event saved = eventRepository.save(event);
+        eventCountersService.init(saved.getId());
 
-        Long confirmedRequests = requestFeignClient.countConfirmedRequestsByEventId(saved.getId());
-
-        return mapper.toEventFullDto(saved, confirmedRequests, 0L, 0L, locationDto); // views = 0, comments = 0 для нового события
+        return mapper.toEventFullDto(saved, 0L, 0L, 0L, locationDto); // у нового события нет заявок, просмотров и комментариев
     }
 
     @Transactional
@@ -167,10 +166,9 @@ public class EventPrivateService {
 
         Event updated = eventRepository.save(event);
 
-        Long confirmedRequests = requestFeignClient.countConfirmedRequestsByEventId(updated.getId());
-        Long commentsCount = commentFeignClient.countByEventId(updated.getId());
+        EventCounters counters = eventCountersService.getCounters(updated.getId());
         LocationDto locationDto = locationFeignClient.getLocation(updated.getLocation());
-        return mapper.toEventFullDto(updated, confirmedRequests, 0L, commentsCount, locationDto); // views 0
+        return mapper.toEventFullDto(updated, counters.confirmedRequests(), 0L, counters.commentsCount(), locationDto); // views 0
     }
 
     public List<EventShortDto> getUserEvents(Long userId, int from, int size) {
@@ -196,10 +194,9 @@ public class EventPrivateService {
             throw new ConflictException("Пользователь не может просматривать чужое событие");
         }
 
-        Long confirmedRequests = requestFeignClient.countConfirmedRequestsByEventId(eventId);
-        Long commentsCount = commentFeignClient.countByEventId(eventId);
+        EventCounters counters = eventCountersService.getCounters(eventId);
         LocationDto locationDto = locationFeignClient.getLocation(event.getLocation());
-        return mapper.toEventFullDto(event, confirmedRequests, 0L, commentsCount, locationDto); // views 0
+        return mapper.toEventFullDto(event, counters.confirmedRequests(), 0L, counters.commentsCount(), locationDto); // views 0
     }
 
     // вспомогательный метод для конвертации списка
@@ -209,40 +206,16 @@ public class EventPrivateService {
         }
 
         List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(eventIds);
-        Map<Long, Long> commentsCountMap = getCommentsCountMap(eventIds);
+        Map<Long, EventCounters> counters = eventCountersService.getCounters(eventIds);
 
         return events.stream()
-                .map(event -> mapper.toEventShortDto(event,
-                        confirmedRequestsMap.getOrDefault(event.getId(), 0L),
-                        0L, // views пока 0
-                        commentsCountMap.getOrDefault(event.getId(), 0L))) // добавляем количество комментариев
+                .map(event -> {
+                    EventCounters eventCounters = counters.getOrDefault(event.getId(), EventCounters.EMPTY);
+                    return mapper.toEventShortDto(event,
+                            eventCounters.confirmedRequests(),
+                            0L, // views пока 0
+                            eventCounters.commentsCount());
+                })
                 .collect(Collectors.toList());
     }
-
-    // метод для получения подтвержденных запросов
-    private Map<Long, Long> getConfirmedRequestsMap(List<Long> eventIds) {
-        List<Object[]> results = requestFeignClient.countConfirmedRequestsByEventIds(eventIds);
-        return results.stream()
-                .collect(Collectors.toMap(
-                        result -> (Long.parseLong(result[0].toString())),
-                        result -> (Long.parseLong(result[1].toString()))
-                ));
-
-    }
-
-    // метод для получения количества комментариев
-    private Map<Long, Long> getCommentsCountMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        return commentFeignClient.countCommentsByEventIds(eventIds)
-                .stream()
-                .collect(Collectors.toMap(
-                        result -> (Long) result[0],
-                        result -> (Long) result[1]
-                ));
-
-    }
 }
@@ -14,18 +14,18 @@ import ru.practicum.interactionapi.dto.event.EventFullDto;
 import ru.practicum.eventservice.event.dto.EventSearchParams;
 import ru.practicum.eventservice.event.dto.EventShortDto;
 import ru.practicum.eventservice.event.model.Event;
+import ru.practicum.eventservice.event.model.EventCounters;
 
 import ru.practicum.eventservice.event.model.EventSort;
 import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
-import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.interactionapi.dto.stats.EventViewsDto;
 import ru.practicum.interactionapi.enums.EventState;
 import ru.practicum.eventservice.event.repository.EventRepository;
+import ru.practicum.eventservice.event.repository.EventSearchRepository;
 import ru.practicum.eventservice.mapper.EventMapper;
 import ru.practicum.interactionapi.exception.NotFoundException;
 import ru.practicum.interactionapi.exception.ValidationException;
-import ru.practicum.interactionapi.feignClient.CommentFeignClient;
 import ru.practicum.interactionapi.feignClient.LocationFeignClient;
-import ru.practicum.interactionapi.feignClient.RequestFeignClient;
 import ru.practicum.interactionapi.feignClient.StatsFeignClient;
 
 
@@ -33,6 +33,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,11 +43,13 @@ import java.util.stream.Collectors;
 public class EventPublicService {
 
     private final EventRepository eventRepository;
+    private final EventSearchRepository eventSearchRepository;
     private final StatsFeignClient statsClient;
     private final EventMapper mapper;
-    private final RequestFeignClient requestFeignClient;
-    private final CommentFeignClient commentFeignClient;
     private final LocationFeignClient locationFeignClient;
+    private final EventCountersService eventCountersService;
+    private final EnrichmentExecutor enrichment;
+    private final HitBuffer hitBuffer;
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -80,36 +83,40 @@ public class EventPublicService {
             pageable = PageRequest.of(params.getFrom() / params.getSize(), params.getSize());
         }
 
-        // Поиск событий
-        List<Event> events = eventRepository.findPublishedEvents(
-                params.getText(),
-                params.getCategories(),
-                params.getPaid(),
-                rangeStart,
-                rangeEnd,
-                pageable
-        ).getContent();
-
-        // Фильтрация по доступности мест (до преобразования в DTO)
-        if (Boolean.TRUE.equals(params.getOnlyAvailable())) {
-            Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(
-                    events.stream().map(Event::getId).collect(Collectors.toList())
-            );
+        // Поиск событий: по тексту, по свободным местам и с сортировкой по просмотрам — через
+        // EventSearchRepository, иначе обычным запросом
+        boolean hasText = params.getText() != null && !params.getText().isEmpty();
+        boolean byViews = EventSort.VIEWS.name().equals(params.getSort());
+        boolean onlyAvailable = Boolean.TRUE.equals(params.getOnlyAvailable());
+        List<Event> events;
+        if (hasText || byViews || onlyAvailable) {
+            events = searchPublishedEvents(params, rangeStart, rangeEnd, pageable, byViews);
+        } else {
+            events = eventRepository.findPublishedEvents(
+                    params.getCategories(),
+                    params.getPaid(),
+                    rangeStart,
+                    rangeEnd,
+                    pageable
+            ).getContent();
+        }
 
+        // Доступность мест проверена запросом по event_counters. События без строки запрос
+        // пропускает, их точное число заявок приходит из request-service и проверяется здесь;
+        // страница короче size, только пока сверка не завела строки всем прежним событиям
+        Map<Long, EventCounters> counters = eventCountersService.getCounters(
+                events.stream().map(Event::getId).collect(Collectors.toList())
+        );
+        if (onlyAvailable) {
             events = events.stream()
                     .filter(event -> event.getParticipantLimit() == 0 ||
-                            confirmedRequestsMap.getOrDefault(event.getId(), 0L) < event.getParticipantLimit())
+                            counters.getOrDefault(event.getId(), EventCounters.EMPTY).confirmedRequests()
+                                    < event.getParticipantLimit())
                     .collect(Collectors.toList());
         }
 
-        // Получение статистики просмотров
-        List<EventShortDto> eventDtos = convertToEventShortDtoList(events);
-
-        // Сортировка по просмотрам (если требуется)
-        if (EventSort.VIEWS.name().equals(params.getSort())) {
-            eventDtos.sort(Comparator.comparing(EventShortDto::getViews,
-                    Comparator.nullsLast(Comparator.naturalOrder())));
-        }
+        // Получение статистики просмотров; порядок по просмотрам уже задан запросом
+        List<EventShortDto> eventDtos = convertToEventShortDtoList(events, counters);
 
         saveStats(ip, uri);
 
@@ -148,7 +155,34 @@ public class EventPublicService {
         return eventDto;
     }
 
-    private List<EventShortDto> convertToEventShortDtoList(List<Event> events) {
+    private List<Event> searchPublishedEvents(EventSearchParams params, LocalDateTime rangeStart,
+                                              LocalDateTime rangeEnd, Pageable pageable, boolean byViews) {
+        EventSort sort = byViews ? EventSort.VIEWS : pageable.getSort().isSorted() ? EventSort.EVENT_DATE : null;
+        List<Long> ids = eventSearchRepository.findPublishedIds(
+                params.getText(),
+                params.getCategories(),
+                params.getPaid(),
+                rangeStart,
+                rangeEnd,
+                Boolean.TRUE.equals(params.getOnlyAvailable()),
+                sort,
+                pageable.getOffset(),
+                pageable.getPageSize()
+        );
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Event> eventsById = eventRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Event::getId, event -> event));
+        return ids.stream()
+                .map(eventsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Заявки и комментарии берутся из event_counters; просмотры при недоступности stats-server — нули
+    private List<EventShortDto> convertToEventShortDtoList(List<Event> events, Map<Long, EventCounters> counters) {
         if (events.isEmpty()) {
             return List.of();
         }
@@ -157,69 +191,46 @@ public class EventPublicService {
                 .map(Event::getId)
                 .collect(Collectors.toList());
 
-        // Получение статистики просмотров
         Map<Long, Long> viewsMap = getViewsMap(eventIds);
 
-        // Получение количества подтвержденных заявок
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(eventIds);
-
-        // Получение количества комментариев
-        Map<Long, Long> commentsCountMap = getCommentsCountMap(eventIds);
-
         return events.stream()
                 .map(event -> {
+                    EventCounters eventCounters = counters.getOrDefault(event.getId(), EventCounters.EMPTY);
                     EventShortDto dto = mapper.toEventShortDto(event);
                     dto.setViews(viewsMap.getOrDefault(event.getId(), 0L));
-                    dto.setConfirmedRequests(confirmedRequestsMap.getOrDefault(event.getId(), 0L));
-                    dto.setCommentsCount(commentsCountMap.getOrDefault(event.getId(), 0L));
+                    dto.setConfirmedRequests(eventCounters.confirmedRequests());
+                    dto.setCommentsCount(eventCounters.commentsCount());
                     return dto;
                 })
                 .collect(Collectors.toList());
     }
 
+    // Просмотры запрашиваются в пуле параллельно с локацией. Локация — часть самого события,
+    // поэтому она запрашивается в этом потоке и её ошибка возвращается клиенту, а просмотры
+    // при недоступности stats-server заменяются нулём
     private EventFullDto convertToEventFullDto(Event event) {
-        LocationDto locationDto = locationFeignClient.getLocation(event.getLocation());
-        EventFullDto dto = mapper.toEventFullDto(event, locationDto);
-
-        // Получение статистики просмотров для одного события
-        Map<Long, Long> viewsMap = getViewsMap(List.of(event.getId()));
-        dto.setViews(viewsMap.getOrDefault(event.getId(), 0L));
+        List<Long> eventIds = List.of(event.getId());
+        Long locationId = event.getLocation();
 
-        // Получение количества подтвержденных заявок
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(List.of(event.getId()));
-        dto.setConfirmedRequests(confirmedRequestsMap.getOrDefault(event.getId(), 0L));
+        CompletableFuture<Map<Long, Long>> views = enrichment.optional("Просмотры",
+                () -> getViewsMap(eventIds), Map.of());
+        LocationDto location = enrichment.required("Локация",
+                () -> locationFeignClient.getLocation(locationId));
+        EventCounters counters = eventCountersService.getCounters(event.getId());
 
-        // Получение количества комментариев
-        Map<Long, Long> commentsCountMap = getCommentsCountMap(List.of(event.getId()));
-        dto.setCommentsCount(commentsCountMap.getOrDefault(event.getId(), 0L));
+        EventFullDto dto = mapper.toEventFullDto(event, location);
+        dto.setViews(views.join().getOrDefault(event.getId(), 0L));
+        dto.setConfirmedRequests(counters.confirmedRequests());
+        dto.setCommentsCount(counters.commentsCount());
 
         return dto;
     }
 
     private Map<Long, Long> getViewsMap(List<Long> eventIds) {
         try {
-            // Формирование списка URI для запроса статистики
-            List<String> uris = eventIds.stream()
-                    .map(id -> "/events/" + id)
-                    .collect(Collectors.toList());
-
-            // Запрос статистики с начала времени до текущего момента
-            LocalDateTime start = LocalDateTime.of(1970, 1, 1, 0, 0, 0);
-            LocalDateTime end = LocalDateTime.now();
-
-            Collection<ViewStats> stats = statsClient.getStats(
-                    start,
-                    end,
-                    uris,
-                    true
-            );
-
-            return stats.stream()
-                    .collect(Collectors.toMap(
-                            stat -> extractEventIdFromUri(stat.getUri()),
-                            ViewStats::getHits,
-                            (existing, replacement) -> existing
-                    ));
+            // Уникальные просмотры событий за всё время по их id
+            return statsClient.getEventViews(eventIds).stream()
+                    .collect(Collectors.toMap(EventViewsDto::getEventId, EventViewsDto::getUniqueHits));
         } catch (FeignException e) {
 
             log.warn("Ошибка при получении статистики просмотров: {}", e.getMessage());
@@ -228,53 +239,21 @@ public class EventPublicService {
         }
     }
 
-    private Map<Long, Long> getConfirmedRequestsMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        return requestFeignClient.countConfirmedRequestsByEventIds(eventIds)
-                .stream()
-                .collect(Collectors.toMap(
-                        result -> (Long.parseLong(result[0].toString())),
-                        result -> (Long.parseLong(result[1].toString()))
-                ));
-
-    }
-
-    private Map<Long, Long> getCommentsCountMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        return commentFeignClient.countCommentsByEventIds(eventIds)
-                .stream()
-                .collect(Collectors.toMap(
-                        result -> (Long) result[0],
-                        result -> (Long) result[1]
-                ));
-
-    }
-
-    private Long extractEventIdFromUri(String uri) {
-        try {
-            String[] parts = uri.split("/");
-            return Long.parseLong(parts[parts.length - 1]);
-        } catch (Exception e) {
-            log.warn("Ошибка при извлечении ID события из URI: {}", uri);
-            return 0L;
+    // В асинхронном режиме просмотр только ставится в очередь HitBuffer
+    private void saveStats(String ip, String uri) {
+        EndpointHitDto hitDto = new EndpointHitDto(
+                "ewm-main-service",
+                uri,
+                ip,
+                LocalDateTime.now()
+        );
+
+        if (hitBuffer.isEnabled()) {
+            hitBuffer.add(hitDto);
+            return;
         }
-    }
 
-    private void saveStats(String ip, String uri) {
         try {
-            EndpointHitDto hitDto = new EndpointHitDto(
-                    "ewm-main-service",
-                    uri,
-                    ip,
-                    LocalDateTime.now()
-            );
-
             statsClient.saveHit(hitDto);
             log.debug("Статистика сохранена: ip={}, uri={}", ip, uri);
         } catch (FeignException e) {
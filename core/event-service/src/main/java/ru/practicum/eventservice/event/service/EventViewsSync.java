@@ -0,0 +1,72 @@
+package ru.practicum.eventservice.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.eventservice.event.repository.EventCounterRepository;
+import ru.practicum.interactionapi.dto.stats.EventViewsDto;
+import ru.practicum.interactionapi.feignClient.StatsFeignClient;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Копия уникальных просмотров опубликованных событий в event_counters.views: по ней
+// выполняется sort=VIEWS вместе с фильтрами и пагинацией. Порядок отстаёт от stats-server
+// не больше чем на один проход по всем опубликованным событиям
+@Service
+@Slf4j
+public class EventViewsSync {
+
+    private final EventCounterRepository counterRepository;
+    private final StatsFeignClient statsClient;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public EventViewsSync(EventCounterRepository counterRepository,
+                          StatsFeignClient statsClient,
+                          @Value("${event.views-sync.enabled:true}") boolean enabled,
+                          @Value("${event.views-sync.batch-size:200}") int batchSize) {
+        this.counterRepository = counterRepository;
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    // Каждая порция сохраняется сразу, поэтому прерванный проход не теряет уже полученные значения
+    @Scheduled(fixedDelayString = "${event.views-sync.interval-ms:60000}",
+            initialDelayString = "${event.views-sync.initial-delay-ms:10000}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        int synced = 0;
+        while (true) {
+            List<Long> eventIds = counterRepository.findPublishedEventIdsAfter(afterId, batchSize);
+            if (eventIds.isEmpty()) {
+                break;
+            }
+
+            List<EventViewsDto> views;
+            try {
+                views = statsClient.getEventViews(eventIds);
+            } catch (RuntimeException e) {
+                log.warn("Синхронизация просмотров прервана: {}", e.getMessage());
+                return;
+            }
+
+            // События без просмотров в ответ не попадают, для них сохраняется ноль
+            Map<Long, Long> viewsByEvent = new HashMap<>();
+            eventIds.forEach(eventId -> viewsByEvent.put(eventId, 0L));
+            views.forEach(dto -> viewsByEvent.put(dto.getEventId(), dto.getUniqueHits()));
+            counterRepository.updateViews(viewsByEvent);
+
+            synced += eventIds.size();
+            afterId = eventIds.get(eventIds.size() - 1);
+        }
+        log.debug("Синхронизированы просмотры {} событий", synced);
+    }
+}
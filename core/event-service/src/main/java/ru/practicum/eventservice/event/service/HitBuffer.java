@@ -0,0 +1,164 @@
+package ru.practicum.eventservice.event.service;
+
+import feign.FeignException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
+import ru.practicum.interactionapi.feignClient.StatsFeignClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Отправка просмотров в stats-server вне обработки запроса: просмотры копятся в ограниченной
+// очереди и уходят пакетами через POST /hit/batch. Время просмотра фиксируется при постановке
+// в очередь, поэтому задержка отправки не искажает статистику. Если stats-server недоступен,
+// очередь заполняется, после чего новые просмотры отбрасываются и учитываются в счётчике
+@Component
+@Slf4j
+public class HitBuffer {
+
+    private static final long MAX_BACKOFF_MS = 30000;
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+    private final StatsFeignClient statsClient;
+    private final boolean enabled;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long retryBackoffMs;
+    private final long shutdownTimeoutMs;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+    private Thread worker;
+
+    public HitBuffer(StatsFeignClient statsClient,
+                     @Value("${event.hits.async:false}") boolean enabled,
+                     @Value("${event.hits.queue-capacity:10000}") int queueCapacity,
+                     @Value("${event.hits.batch-size:500}") int batchSize,
+                     @Value("${event.hits.flush-interval-ms:500}") long flushIntervalMs,
+                     @Value("${event.hits.retry-backoff-ms:1000}") long retryBackoffMs,
+                     @Value("${event.hits.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "event-hit-sender");
+        worker.start();
+        log.info("Асинхронная отправка просмотров включена: batchSize={}, flushIntervalMs={}, capacity={}",
+                batchSize, flushIntervalMs, queue.remainingCapacity());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Не блокирует: при переполненной очереди просмотр отбрасывается
+    public void add(EndpointHitDto hit) {
+        if (running && queue.offer(hit)) {
+            return;
+        }
+        long total = dropped.incrementAndGet();
+        // Предупреждение на первый и затем на каждый тысячный отброшенный просмотр
+        if (total % 1000 == 1) {
+            log.warn("Очередь отправки просмотров переполнена, всего отброшено {}", total);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.error("Не удалось дождаться отправки просмотров, в очереди осталось {}", queue.size());
+        }
+    }
+
+    private void runWorker() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (running || !queue.isEmpty()) {
+            long waitMs = Math.max(deadline - System.currentTimeMillis(), 1);
+            try {
+                EndpointHitDto hit = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (hit != null) {
+                    batch.add(hit);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // Остановка: дальше очередь только дочитывается
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (batch.size() >= batchSize || System.currentTimeMillis() >= deadline || !running) {
+                send(batch);
+                deadline = System.currentTimeMillis() + flushIntervalMs;
+            }
+        }
+        send(batch);
+        log.info("Асинхронная отправка просмотров остановлена, всего отброшено {}", dropped.get());
+    }
+
+    // Ответ 4xx повтором не исправить — такой пакет отбрасывается; остальные ошибки повторяются
+    // с растущей паузой, а при остановке — не более SHUTDOWN_FLUSH_ATTEMPTS раз
+    private void send(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                statsClient.saveHits(batch);
+                batch.clear();
+                return;
+            } catch (RuntimeException e) {
+                if (e instanceof FeignException fe && fe.status() >= 400 && fe.status() < 500) {
+                    log.error("stats-server отклонил пакет из {} просмотров: {}", batch.size(), e.getMessage());
+                    break;
+                }
+                log.warn("Ошибка отправки пакета из {} просмотров, попытка {}: {}",
+                        batch.size(), attempt, e.getMessage());
+                if (!running && attempt >= SHUTDOWN_FLUSH_ATTEMPTS) {
+                    break;
+                }
+                try {
+                    Thread.sleep(running ? backoffMs : retryBackoffMs);
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            }
+        }
+        dropped.addAndGet(batch.size());
+        log.error("Потеряно {} просмотров", batch.size());
+        batch.clear();
+    }
+}
@@ -43,4 +43,28 @@ CREATE TABLE IF NOT EXISTS compilation_events (
 CREATE INDEX IF NOT EXISTS idx_events_category_id ON events (category_id);
 CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id);
 CREATE INDEX IF NOT EXISTS idx_events_state ON events (state);
-CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date);
+-- Счётчики событий из request-service и comment-service: обновляются по их outbox, версия —
+-- время подсчёта в источнике. Пропущенные строки и расхождения исправляет EventCountersService.reconcile
+CREATE TABLE IF NOT EXISTS event_counters (
+    event_id BIGINT NOT NULL,
+    confirmed_requests BIGINT NOT NULL DEFAULT 0,
+    confirmed_version BIGINT NOT NULL DEFAULT 0,
+    comments_count BIGINT NOT NULL DEFAULT 0,
+    comments_version BIGINT NOT NULL DEFAULT 0,
+    updated_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_event_counters PRIMARY KEY (event_id),
+    CONSTRAINT fk_event_counters_event FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE
+);
+-- Полнотекстовый поиск по опубликованным событиям: по спецификации text ищется только в аннотации
+-- и описании. Вектор вычисляется самой БД при каждой вставке и обновлении, вес A — аннотация,
+-- B — описание
+ALTER TABLE events ADD COLUMN IF NOT EXISTS text_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(annotation, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(description, '')), 'B')
+    ) STORED;
+-- Просмотры из stats-server для sort=VIEWS, синхронизируются EventViewsSync
+ALTER TABLE event_counters ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_event_counters_views ON event_counters (views, event_id);
+CREATE INDEX IF NOT EXISTS idx_events_text_vector ON events USING GIN (text_vector) WHERE state = 'PUBLISHED';
@@ -0,0 +1,18 @@
+package ru.practicum.interactionapi.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Текущие значения счётчиков события из сервиса-источника; null — счётчик этим сервисом не ведётся.
+// version — время подсчёта по часам БД источника в микросекундах: более старое значение не применяется
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventCountersDto {
+
+    private Long eventId;
+    private Long confirmedRequests;
+    private Long commentsCount;
+    private Long version;
+}
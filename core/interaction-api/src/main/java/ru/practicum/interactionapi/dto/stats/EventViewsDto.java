@@ -0,0 +1,15 @@
+package ru.practicum.interactionapi.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventViewsDto {
+
+    private Long eventId;
+    private Long hits;
+    private Long uniqueHits;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.interactionapi.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Просмотры uri за последние час, сутки и неделю, суммарно по всем сервисам
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WindowViewStats {
+
+    private String uri;
+    private Long lastHour;
+    private Long lastDay;
+    private Long lastWeek;
+}
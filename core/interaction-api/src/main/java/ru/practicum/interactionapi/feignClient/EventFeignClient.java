@@ -7,9 +7,14 @@ import org.springframework.cloud.openfeign.FeignClient;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import ru.practicum.interactionapi.dto.event.EventCountersDto;
 import ru.practicum.interactionapi.dto.event.EventFullDto;
 
+import java.util.List;
+
 
 
 @FeignClient(name = "event-service", path = "/internal/events")
@@ -20,6 +25,10 @@ public interface EventFeignClient {
     @GetMapping("/{eventId}")
     EventFullDto eventById(@PathVariable Long eventId) throws FeignException;
 
+    // Без fallback: отправитель из outbox должен узнать об ошибке и повторить отправку
+    @PostMapping("/counters")
+    void updateCounters(@RequestBody List<EventCountersDto> counters) throws FeignException;
+
     @GetMapping("/{eventId}")
     default EventFullDto eventByIdFallback(@PathVariable Long eventId, Throwable throwable) {
        return new EventFullDto();
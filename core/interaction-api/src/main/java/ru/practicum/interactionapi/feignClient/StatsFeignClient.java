@@ -10,7 +10,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
+import ru.practicum.interactionapi.dto.stats.EventViewsDto;
 import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.interactionapi.dto.stats.WindowViewStats;
 
 
 import java.time.LocalDateTime;
@@ -22,6 +24,9 @@ public interface StatsFeignClient {
     @PostMapping("/hit")
     void saveHit(@Valid @RequestBody EndpointHitDto hitDto)  throws FeignException;
 
+    @PostMapping("/hit/batch")
+    void saveHits(@RequestBody List<EndpointHitDto> hitDtos) throws FeignException;
+
 
     @GetMapping("/stats")
     List<ViewStats> getStats(
@@ -31,5 +36,11 @@ public interface StatsFeignClient {
             @RequestParam(defaultValue = "false") boolean unique
     );
 
+    @GetMapping("/stats/events")
+    List<EventViewsDto> getEventViews(@RequestParam List<Long> ids) throws FeignException;
+
+    @GetMapping("/stats/windows")
+    List<WindowViewStats> getWindowStats(@RequestParam List<String> uris) throws FeignException;
+
 
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package ru.practicum.requestservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.requestservice.model.CounterOutbox;
+
+import java.util.List;
+
+public interface CounterOutboxRepository extends JpaRepository<CounterOutbox, Long> {
+
+    List<CounterOutbox> findAllByOrderByIdAsc(Pageable pageable);
+
+    // Отправка идёт в одном потоке на все экземпляры сервиса; блокировка снимается с концом транзакции
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    // Время по часам БД в микросекундах — версия отправляемых значений
+    @Query(value = "SELECT CAST(EXTRACT(EPOCH FROM clock_timestamp()) * 1000000 AS BIGINT)", nativeQuery = true)
+    long currentVersion();
+}
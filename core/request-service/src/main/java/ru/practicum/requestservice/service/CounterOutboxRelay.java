@@ -0,0 +1,68 @@
+package ru.practicum.requestservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.practicum.interactionapi.dto.event.EventCountersDto;
+import ru.practicum.interactionapi.feignClient.EventFeignClient;
+import ru.practicum.requestservice.model.CounterOutbox;
+import ru.practicum.requestservice.repository.CounterOutboxRepository;
+import ru.practicum.requestservice.repository.ParticipationRequestRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Отправка числа подтверждённых заявок в event-service по записям counter_outbox. Отправляется
+// не разница, а текущее значение на момент отправки, поэтому повтор после сбоя ничего не портит.
+// Записи удаляются в той же транзакции только после успешного ответа event-service
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CounterOutboxRelay {
+
+    private static final long RELAY_LOCK = 0x72657175657374L;
+
+    private final CounterOutboxRepository outboxRepository;
+    private final ParticipationRequestRepository requestRepository;
+    private final EventFeignClient eventFeignClient;
+
+    @Value("${counters.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${counters.outbox.interval-ms:1000}")
+    @Transactional
+    public void relay() {
+        if (!outboxRepository.tryLock(RELAY_LOCK)) {
+            return;
+        }
+        List<CounterOutbox> batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Long> eventIds = batch.stream().map(CounterOutbox::getEventId).distinct().toList();
+        long version = outboxRepository.currentVersion();
+        Map<Long, Long> confirmed = requestRepository.countConfirmedRequestsByEventIds(eventIds).stream()
+                .collect(Collectors.toMap(
+                        result -> Long.parseLong(result[0].toString()),
+                        result -> Long.parseLong(result[1].toString())));
+
+        try {
+            eventFeignClient.updateCounters(eventIds.stream()
+                    .map(eventId -> new EventCountersDto(eventId, confirmed.getOrDefault(eventId, 0L), null, version))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить счётчики заявок {} событий в event-service: {}",
+                    eventIds.size(), e.getMessage());
+            return;
+        }
+        outboxRepository.deleteAllInBatch(batch);
+        log.debug("Отправлены счётчики заявок событий {}", eventIds);
+    }
+}
@@ -21,8 +21,10 @@ import ru.practicum.interactionapi.feignClient.EventFeignClient;
 import ru.practicum.interactionapi.feignClient.UserFeignClient;
 import ru.practicum.interactionapi.dto.request.ParticipationRequestResponse;
 import ru.practicum.requestservice.mapper.RequestMapper;
+import ru.practicum.requestservice.model.CounterOutbox;
 import ru.practicum.requestservice.model.ParticipationRequest;
 import ru.practicum.requestservice.model.RequestStatus;
+import ru.practicum.requestservice.repository.CounterOutboxRepository;
 import ru.practicum.requestservice.repository.ParticipationRequestRepository;
 
 
@@ -46,6 +48,8 @@ public class RequestPrivateService {
 
     private final EventFeignClient eventFeignClient;
 
+    private final CounterOutboxRepository outboxRepository;
+
     public List<ParticipationRequestDto> getUserRequests(Long userId) {
         log.info("Получение запросов пользователя userId={}", userId);
 
@@ -110,6 +114,9 @@ public class RequestPrivateService {
                 .build();
 
         ParticipationRequest saved = requestRepository.save(request);
+        if (status == RequestStatus.CONFIRMED) {
+            notifyCounters(eventId);
+        }
         return mapper.toParticipationRequestDto(saved);
     }
 
@@ -124,8 +131,12 @@ public class RequestPrivateService {
             throw new ConflictException("Пользователь не может отменить чужой запрос");
         }
 
+        boolean wasConfirmed = request.getStatus() == RequestStatus.CONFIRMED;
         request.setStatus(RequestStatus.CANCELED);
         ParticipationRequest saved = requestRepository.save(request);
+        if (wasConfirmed) {
+            notifyCounters(saved.getEventId());
+        }
         return mapper.toParticipationRequestDto(saved);
     }
 
@@ -171,6 +182,12 @@ public class RequestPrivateService {
         long confirmedCount = requestRepository.countConfirmedRequestsByEventId(eventId);
         long limit = event.getParticipantLimit();
 
+        // Изменённые заявки сохраняются и при досрочном выходе из цикла, поэтому счётчик
+        // отправляется при любом подтверждении; лишняя отправка лишь повторит то же значение
+        if ("CONFIRMED".equalsIgnoreCase(dto.getStatus())) {
+            notifyCounters(eventId);
+        }
+
 
         List<ParticipationRequest> requestList = new ArrayList<>();
 
@@ -238,6 +255,14 @@ public class RequestPrivateService {
                 .build();
     }
 
+    // Запись outbox в транзакции изменения заявок: event-service узнает о новом числе подтверждённых
+    private void notifyCounters(Long eventId) {
+        outboxRepository.save(CounterOutbox.builder()
+                .eventId(eventId)
+                .createdOn(LocalDateTime.now())
+                .build());
+    }
+
 
 }
 
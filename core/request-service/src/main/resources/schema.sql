@@ -12,3 +12,12 @@ CREATE TABLE IF NOT EXISTS requests (
 CREATE INDEX IF NOT EXISTS idx_requests_event_id ON requests (event_id);
 CREATE INDEX IF NOT EXISTS idx_requests_requester_id ON requests (requester_id);
 CREATE INDEX IF NOT EXISTS idx_requests_status ON requests (status);
+
+-- Transactional outbox: события, у которых изменилось число подтверждённых заявок.
+-- Записывается в транзакции изменения заявки, отправляется в event-service CounterOutboxRelay
+CREATE TABLE IF NOT EXISTS counter_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    event_id BIGINT NOT NULL,
+    created_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_counter_outbox PRIMARY KEY (id)
+);
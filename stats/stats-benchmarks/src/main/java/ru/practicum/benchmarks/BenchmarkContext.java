@@ -0,0 +1,43 @@
+package ru.practicum.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ru.practicum.service.StatsServerApplication;
+
+// Контекст stats-server без веб-сервера, config-server и eureka. Настройки передаются как
+// аргументы командной строки, чтобы перекрыть application.yaml самого сервиса.
+// Кэш результатов и счётчики в памяти выключены: измеряется путь до БД
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... extraArgs) {
+        String[] base = {
+                "--spring.config.import=optional:configserver:",
+                "--spring.cloud.config.enabled=false",
+                "--spring.cloud.discovery.enabled=false",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=" + System.getProperty("bench.db.url",
+                        "jdbc:postgresql://localhost:6541/stats_bench?reWriteBatchedInserts=true"),
+                "--spring.datasource.username=" + System.getProperty("bench.db.username", "stats"),
+                "--spring.datasource.password=" + System.getProperty("bench.db.password", "stats"),
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=classpath:schema.sql",
+                "--logging.level.root=WARN",
+                "--stats.cache.enabled=false",
+                "--stats.counters.enabled=false",
+                "--stats.windows.enabled=false",
+                "--stats.top.enabled=false"
+        };
+        String[] args = new String[base.length + extraArgs.length];
+        System.arraycopy(base, 0, args, 0, base.length);
+        System.arraycopy(extraArgs, 0, args, base.length, extraArgs.length);
+
+        return new SpringApplicationBuilder(StatsServerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
+import ru.practicum.service.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность синхронной записи через StatsService: по одному запросу (POST /hit)
+// и пакетами (POST /hit/batch); результат saveHits — в запросах, а не в пакетах, в секунду
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class IngestionBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        statsService = context.getBean(StatsService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveHit() {
+        statsService.saveHit(randomHit(LocalDateTime.now()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveHits() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHitDto> hits = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            hits.add(randomHit(now));
+        }
+        statsService.saveHits(hits);
+    }
+
+    private static EndpointHitDto randomHit(LocalDateTime now) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int ip = random.nextInt(1 << 20);
+        return new EndpointHitDto(
+                SyntheticDataset.APPS.get(random.nextInt(SyntheticDataset.APPS.size())),
+                "/events/" + (1 + random.nextInt(SyntheticDataset.URIS)),
+                "10." + (ip >>> 16) + "." + ((ip >>> 8) & 0xff) + "." + (ip & 0xff),
+                now);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.service.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// GET /stats по синтетическому набору: окно целиком (агрегаты и скетчи) и окно со смещёнными
+// границами, края которого дочитываются из сырых запросов; все uri или 100 uri событий
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class StatsQueryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public long hits;
+
+    @Param({"false", "true"})
+    public boolean unique;
+
+    @Param({"0", "100"})
+    public int uriCount;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private List<String> uris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = BenchmarkContext.start();
+        SyntheticDataset.ensure(context, hits);
+        statsService = context.getBean(StatsService.class);
+        uris = uriCount == 0 ? null : SyntheticDataset.uris(uriCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ViewStats> alignedWindow() {
+        return statsService.getStats(SyntheticDataset.start(), SyntheticDataset.end().minusSeconds(1),
+                uris, unique, false);
+    }
+
+    @Benchmark
+    public List<ViewStats> unalignedWindow() {
+        LocalDateTime start = SyntheticDataset.start().plusHours(7).plusMinutes(13);
+        LocalDateTime end = SyntheticDataset.end().minusHours(5).minusMinutes(47);
+        return statsService.getStats(start, end, uris, unique, false);
+    }
+}
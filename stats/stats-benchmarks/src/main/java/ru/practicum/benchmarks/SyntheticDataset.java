@@ -0,0 +1,90 @@
+package ru.practicum.benchmarks;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ru.practicum.service.model.BackfillState;
+import ru.practicum.service.model.BackfillStatus;
+import ru.practicum.service.service.RollupBackfillService;
+import ru.practicum.service.service.RollupService;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Синтетические запросы за DAYS суток до начала текущих суток: три сервиса, URIS uri событий
+// с убывающей популярностью и около миллиона разных IP. Набор создаётся заново, только если
+// в базе другое число запросов за этот период; агрегаты и скетчи строит пересчёт агрегатов
+public final class SyntheticDataset {
+
+    public static final int DAYS = 30;
+    public static final int URIS = 10_000;
+    public static final List<String> APPS = List.of("bench-main", "bench-admin", "bench-public");
+
+    private static final String INSERT_HITS = """
+            WITH apps AS (SELECT array_agg(id ORDER BY id) AS ids FROM stat_apps WHERE name LIKE 'bench-%'),
+                 uris AS (SELECT array_agg(id ORDER BY event_id) AS ids FROM stat_uris WHERE event_id <= ?)
+            INSERT INTO endpoint_hits (app_id, uri_id, ip, hit_timestamp)
+            SELECT apps.ids[1 + floor(random() * cardinality(apps.ids))::int],
+                   uris.ids[1 + floor(power(random(), 3) * cardinality(uris.ids))::int],
+                   int4send(floor(random() * 1048576)::int),
+                   ?::timestamp + random() * (?::timestamp - ?::timestamp)
+            FROM generate_series(1, ?), apps, uris
+            """;
+
+    private SyntheticDataset() {
+    }
+
+    public static LocalDateTime end() {
+        return LocalDate.now().atStartOfDay();
+    }
+
+    public static LocalDateTime start() {
+        return end().minusDays(DAYS);
+    }
+
+    public static List<String> uris(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "/events/" + i).toList();
+    }
+
+    public static void ensure(ConfigurableApplicationContext context, long hits) throws InterruptedException {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Timestamp from = Timestamp.valueOf(start());
+        Timestamp to = Timestamp.valueOf(end());
+
+        Long existing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM endpoint_hits WHERE hit_timestamp >= ? AND hit_timestamp < ?",
+                Long.class, from, to);
+        if (existing != null && existing == hits) {
+            return;
+        }
+
+        jdbcTemplate.execute("TRUNCATE endpoint_hits, hit_rollups, hit_sketches, view_counters, rollup_backfill");
+        jdbcTemplate.batchUpdate("INSERT INTO stat_apps (name) VALUES (?) ON CONFLICT (name) DO NOTHING",
+                APPS.stream().map(app -> new Object[]{app}).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO stat_uris (uri) VALUES (?) ON CONFLICT (uri) DO NOTHING",
+                uris(URIS).stream().map(uri -> new Object[]{uri}).toList());
+        jdbcTemplate.update(INSERT_HITS, URIS, from, to, from, hits);
+        jdbcTemplate.execute("ANALYZE endpoint_hits");
+
+        // Агрегаты считаются полными только с конца набора; пересчёт опустит границу до его начала
+        jdbcTemplate.update("UPDATE stats_rollup_state SET rollup_from = ? WHERE id = 1", to);
+        context.getBean(RollupService.class).refreshRollupFrom();
+
+        RollupBackfillService backfillService = context.getBean(RollupBackfillService.class);
+        backfillService.start(start(), end(), 0L);
+        BackfillState state = backfillService.getState();
+        while (state.status() == BackfillStatus.RUNNING) {
+            Thread.sleep(1000);
+            state = backfillService.getState();
+        }
+        if (state.status() != BackfillStatus.COMPLETED) {
+            throw new IllegalStateException("Пересчёт агрегатов завершился со статусом " + state.status()
+                    + ": " + state.error());
+        }
+        jdbcTemplate.execute("ANALYZE hit_rollups");
+        jdbcTemplate.execute("ANALYZE hit_sketches");
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Сериализация ответа /stats: JSON-массивом и построчно, как в /stats/stream. БД не нужна
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ViewStatsSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<ViewStats> stats;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().findAndRegisterModules().writer();
+        stats = IntStream.range(0, size)
+                .mapToObj(i -> new ViewStats(SyntheticDataset.APPS.get(i % SyntheticDataset.APPS.size()),
+                        "/events/" + i, (long) (size - i) * 17))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] jsonArray() throws JsonProcessingException {
+        return writer.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public int ndjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 64);
+        for (ViewStats viewStats : stats) {
+            out.write(writer.writeValueAsBytes(viewStats));
+            out.write('\n');
+        }
+        return out.size();
+    }
+}
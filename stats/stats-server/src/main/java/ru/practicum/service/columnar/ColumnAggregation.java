@@ -0,0 +1,91 @@
+package ru.practicum.service.columnar;
+
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.sketch.HyperLogLog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+// Агрегация строк [from, to) по парам app/uri: диапазон делится пополам, пока не станет
+// меньше THRESHOLD, частичные результаты сливаются. Уникальные IP — по HyperLogLog от хэшей
+public class ColumnAggregation extends RecursiveTask<Map<Long, ColumnAggregation.Aggregate>> {
+
+    private static final int THRESHOLD = 1 << 16;
+
+    private final HitColumns columns;
+    private final int from;
+    private final int to;
+    private final boolean unique;
+
+    public ColumnAggregation(HitColumns columns, boolean unique) {
+        this(columns, 0, columns.size(), unique);
+    }
+
+    private ColumnAggregation(HitColumns columns, int from, int to, boolean unique) {
+        this.columns = columns;
+        this.from = from;
+        this.to = to;
+        this.unique = unique;
+    }
+
+    public static class Aggregate {
+        private long hits;
+        private HyperLogLog visitors;
+
+        public long value() {
+            return visitors != null ? visitors.estimate() : hits;
+        }
+
+        public void merge(Aggregate other) {
+            hits += other.hits;
+            if (other.visitors != null) {
+                if (visitors == null) {
+                    visitors = other.visitors;
+                } else {
+                    visitors.merge(other.visitors);
+                }
+            }
+        }
+    }
+
+    public static Map<Long, Aggregate> merge(Map<Long, Aggregate> left, Map<Long, Aggregate> right) {
+        if (left.size() < right.size()) {
+            Map<Long, Aggregate> swap = left;
+            left = right;
+            right = swap;
+        }
+        for (Map.Entry<Long, Aggregate> entry : right.entrySet()) {
+            Aggregate existing = left.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                existing.merge(entry.getValue());
+            }
+        }
+        return left;
+    }
+
+    @Override
+    protected Map<Long, Aggregate> compute() {
+        if (to - from > THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            ColumnAggregation left = new ColumnAggregation(columns, from, middle, unique);
+            left.fork();
+            Map<Long, Aggregate> right = new ColumnAggregation(columns, middle, to, unique).compute();
+            return merge(left.join(), right);
+        }
+
+        Map<Long, Aggregate> result = new HashMap<>();
+        for (int row = from; row < to; row++) {
+            Aggregate aggregate = result.computeIfAbsent(HitCount.key(columns.appId(row), columns.uriId(row)),
+                    key -> new Aggregate());
+            aggregate.hits++;
+            if (unique) {
+                if (aggregate.visitors == null) {
+                    aggregate.visitors = new HyperLogLog();
+                }
+                aggregate.visitors.addHash(columns.ipHash(row));
+            }
+        }
+        return result;
+    }
+}
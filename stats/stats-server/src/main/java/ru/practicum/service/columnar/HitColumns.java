@@ -0,0 +1,48 @@
+package ru.practicum.service.columnar;
+
+import java.util.Arrays;
+
+// Запросы одного отрезка окна по столбцам: app_id, uri_id и хэш IP в массивах примитивов
+public class HitColumns {
+
+    private int[] appIds;
+    private int[] uriIds;
+    private long[] ipHashes;
+    private int size;
+
+    public HitColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.appIds = new int[capacity];
+        this.uriIds = new int[capacity];
+        this.ipHashes = new long[capacity];
+    }
+
+    public void add(int appId, int uriId, long ipHash) {
+        if (size == appIds.length) {
+            int capacity = size * 2;
+            appIds = Arrays.copyOf(appIds, capacity);
+            uriIds = Arrays.copyOf(uriIds, capacity);
+            ipHashes = Arrays.copyOf(ipHashes, capacity);
+        }
+        appIds[size] = appId;
+        uriIds[size] = uriId;
+        ipHashes[size] = ipHash;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int appId(int row) {
+        return appIds[row];
+    }
+
+    public int uriId(int row) {
+        return uriIds[row];
+    }
+
+    public long ipHash(int row) {
+        return ipHashes[row];
+    }
+}
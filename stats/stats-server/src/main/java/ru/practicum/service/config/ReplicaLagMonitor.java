@@ -0,0 +1,64 @@
+package ru.practicum.service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+// Отставание реплики проверяется по времени последней применённой транзакции. Если реплика
+// применила всё полученное, отставания нет, даже когда на основной БД давно не было записи.
+// Недоступная реплика считается отставшей, и чтение возвращается на основную БД
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxLagMs;
+
+    private volatile long lagMs = -1;
+    private volatile boolean available;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMs, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("stats.replica.lag", this, monitor -> monitor.lagMs)
+                .description("Отставание реплики, мс; -1 — реплика недоступна")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.replica.check-interval-ms:1000}")
+    public void check() {
+        boolean wasAvailable = available;
+        try {
+            Double lag = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            lagMs = lag == null ? 0 : lag.longValue();
+            available = lagMs <= maxLagMs;
+        } catch (RuntimeException e) {
+            lagMs = -1;
+            available = false;
+            if (wasAvailable) {
+                log.warn("Реплика недоступна: {}", e.getMessage());
+            }
+        }
+
+        if (wasAvailable && !available && lagMs >= 0) {
+            log.warn("Отставание реплики {} мс превышает {} мс, чтение переведено на основную БД", lagMs, maxLagMs);
+        } else if (!wasAvailable && available) {
+            log.info("Чтение статистики переведено на реплику, отставание {} мс", lagMs);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.service.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Транзакции только на чтение уходят на реплику, пока её отставание в пределах порога,
+// всё остальное — на основную БД. Ключ определяется при первом запросе к соединению,
+// поэтому источник оборачивается в LazyConnectionDataSourceProxy
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isAvailable()
+                ? REPLICA
+                : PRIMARY;
+    }
+}
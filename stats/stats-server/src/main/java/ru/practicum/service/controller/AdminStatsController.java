@@ -0,0 +1,104 @@
+package ru.practicum.service.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.service.model.BackfillState;
+import ru.practicum.service.model.TransferStatus;
+import ru.practicum.service.service.ColumnarScanService;
+import ru.practicum.service.service.HitTransferService;
+import ru.practicum.service.service.RollupBackfillService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/stats")
+@RequiredArgsConstructor
+public class AdminStatsController {
+
+    private final ColumnarScanService columnarScanService;
+    private final HitTransferService hitTransferService;
+    private final RollupBackfillService backfillService;
+
+    // Разовые аналитические запросы за длинные периоды: многопоточный проход по сырым запросам
+    @GetMapping("/scan")
+    public List<ViewStats> scan(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique
+    ) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        return columnarScanService.getStats(start, end, uris, unique);
+    }
+
+    // Выгрузка сырых запросов за период в CSV потоком, без накопления в памяти
+    @GetMapping("/hits/export")
+    public void exportHits(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            HttpServletResponse response
+    ) throws IOException {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hits.csv\"");
+        hitTransferService.export(start, end, response.getWriter());
+    }
+
+    // Загрузка файла, полученного exportHits; ход загрузки — GET /admin/stats/transfers
+    @PostMapping(value = "/hits/import", consumes = "text/csv")
+    public TransferStatus importHits(HttpServletRequest request) throws IOException {
+        request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return hitTransferService.importHits(request.getReader());
+    }
+
+    @GetMapping("/transfers")
+    public List<TransferStatus> getTransfers() {
+        return hitTransferService.getTransfers();
+    }
+
+    // Фоновый пересчёт агрегатов по сырым запросам; throttleMs — пауза между сутками
+    @PostMapping("/backfill")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackfillState startBackfill(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(required = false) @PositiveOrZero Long throttleMs
+    ) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        return backfillService.start(from, to, throttleMs);
+    }
+
+    @GetMapping("/backfill")
+    public BackfillState getBackfill() {
+        return backfillService.getState();
+    }
+
+    @DeleteMapping("/backfill")
+    public BackfillState cancelBackfill() {
+        return backfillService.cancel();
+    }
+}
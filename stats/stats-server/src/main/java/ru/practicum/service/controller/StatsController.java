@@ -1,15 +1,27 @@
 package ru.practicum.service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
+import ru.practicum.interactionapi.dto.stats.EventViewsDto;
 import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.interactionapi.dto.stats.WindowViewStats;
 import ru.practicum.service.service.StatsService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -17,7 +29,10 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatsController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -25,16 +40,73 @@ public class StatsController {
         statsService.saveHit(hitDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void saveHits(@RequestBody @NotEmpty List<@Valid EndpointHitDto> hitDtos) {
+        statsService.saveHits(hitDtos);
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") boolean unique
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean exact
     ) {
         if (start.isAfter(end)) {
             throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
         }
-        return statsService.getStats(start, end, uris, unique);
+        return statsService.getStats(start, end, uris, unique, exact);
+    }
+
+    // Просмотры за последние час, сутки и неделю для пакета uri одним запросом
+    @GetMapping("/stats/windows")
+    public List<WindowViewStats> getWindowStats(@RequestParam @NotEmpty List<String> uris) {
+        return statsService.getWindowStats(uris);
+    }
+
+    // Самые посещаемые uri за последнее окно (например, window=15m или 1h) по приближённым счётчикам
+    @GetMapping("/stats/top")
+    public List<ViewStats> getTopStats(@RequestParam(defaultValue = "1h") String window,
+                                       @RequestParam(defaultValue = "10") @Positive int k) {
+        return statsService.getTopStats(DurationStyle.detectAndParse(window), k);
+    }
+
+    // Построчный JSON (NDJSON): строки пишутся в ответ по мере чтения из курсора БД.
+    // limit оставляет только самые посещаемые пары app/uri
+    @GetMapping("/stats/stream")
+    public void streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(required = false) @Positive Integer limit,
+            HttpServletResponse response
+    ) throws IOException {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        // Проверяется до выставления NDJSON, чтобы ошибка ушла обычным JSON
+        statsService.requireAggregates();
+
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(ViewStats.class);
+        statsService.streamStats(start, end, uris, unique, limit, stats -> {
+            try {
+                out.write(writer.writeValueAsBytes(stats));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Просмотры событий за всё время по их id; события без просмотров в ответ не попадают
+    @GetMapping("/stats/events")
+    public List<EventViewsDto> getEventViews(@RequestParam @NotEmpty List<Long> ids) {
+        return statsService.getEventViews(ids);
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package ru.practicum.service.exception;
+
+public class FeatureUnavailableException extends RuntimeException {
+    public FeatureUnavailableException(String message) {
+        super(message);
+    }
+}
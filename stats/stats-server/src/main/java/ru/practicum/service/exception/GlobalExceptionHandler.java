@@ -8,6 +8,7 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import ru.practicum.interactionapi.exception.ConflictException;
 import ru.practicum.interactionapi.exception.NotFoundException;
 import ru.practicum.interactionapi.exception.ValidationException;
@@ -57,6 +58,30 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(IngestionOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleIngestionOverloadedException(IngestionOverloadedException e) {
+        log.warn("Сервис статистики перегружен: {}", e.getMessage());
+        return new ErrorResponse(
+                "SERVICE_UNAVAILABLE",
+                "Сервис временно перегружен",
+                e.getMessage(),
+                LocalDateTime.now().format(FORMATTER)
+        );
+    }
+
+    @ExceptionHandler(FeatureUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleFeatureUnavailableException(FeatureUnavailableException e) {
+        log.warn("Функция недоступна: {}", e.getMessage());
+        return new ErrorResponse(
+                "SERVICE_UNAVAILABLE",
+                "Функция недоступна в текущей конфигурации",
+                e.getMessage(),
+                LocalDateTime.now().format(FORMATTER)
+        );
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
@@ -74,6 +99,23 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleHandlerMethodValidationException(HandlerMethodValidationException e) {
+        String message = e.getAllErrors().stream()
+                .map(error -> error.getDefaultMessage())
+                .findFirst()
+                .orElse("Ошибка валидации");
+
+        log.error("Ошибка валидации параметров: {}", message);
+        return new ErrorResponse(
+                "BAD_REQUEST",
+                "Некорректный запрос",
+                message,
+                LocalDateTime.now().format(FORMATTER)
+        );
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleDataIntegrityViolationException(DataIntegrityViolationException e) {
@@ -0,0 +1,7 @@
+package ru.practicum.service.exception;
+
+public class IngestionOverloadedException extends RuntimeException {
+    public IngestionOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.service.model;
+
+import java.time.LocalDateTime;
+
+// Состояние пересчёта агрегатов за [rangeFrom, rangeTo); chunks — число обработанных суток
+public record BackfillState(LocalDateTime rangeFrom, LocalDateTime rangeTo, LocalDateTime nextFrom,
+                            BackfillStatus status, long chunks, long throttleMs,
+                            LocalDateTime startedAt, LocalDateTime updatedAt, String error) {
+
+    public BackfillState advance(LocalDateTime next) {
+        return new BackfillState(rangeFrom, rangeTo, next, status, chunks + 1, throttleMs, startedAt,
+                LocalDateTime.now(), null);
+    }
+
+    public BackfillState finish(BackfillStatus finalStatus, String message) {
+        return new BackfillState(rangeFrom, rangeTo, nextFrom, finalStatus, chunks, throttleMs, startedAt,
+                LocalDateTime.now(), message);
+    }
+}
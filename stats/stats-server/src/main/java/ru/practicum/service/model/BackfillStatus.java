@@ -0,0 +1,8 @@
+package ru.practicum.service.model;
+
+public enum BackfillStatus {
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,22 @@
+package ru.practicum.service.model;
+
+public enum DictionaryKind {
+    APP("stat_apps", "name"),
+    URI("stat_uris", "uri");
+
+    private final String table;
+    private final String column;
+
+    DictionaryKind(String table, String column) {
+        this.table = table;
+        this.column = column;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+}
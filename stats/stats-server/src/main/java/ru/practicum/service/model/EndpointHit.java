@@ -2,7 +2,6 @@ package ru.practicum.service.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
@@ -21,17 +20,20 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotBlank(message = "Идентификатор сервиса не может быть пустым")
-    private String app;
+    @Column(name = "app_id")
+    @NotNull(message = "Идентификатор сервиса не может быть пустым")
+    private Integer appId;
 
-    @NotBlank(message = "URI не может быть пустым")
-    private String uri;
+    @Column(name = "uri_id")
+    @NotNull(message = "URI не может быть пустым")
+    private Integer uriId;
 
-    @NotBlank(message = "IP-адрес не может быть пустым")
-    private String ip;
+    // 4 байта для IPv4, 16 — для IPv6, см. IpAddresses
+    @NotNull(message = "IP-адрес не может быть пустым")
+    private byte[] ip;
 
     @Column(name = "hit_timestamp")
     @NotNull(message = "Время запроса не может быть пустым")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package ru.practicum.service.model;
+
+// Результат агрегации по суррогатным ключам; в строки app/uri переводится только на выходе
+public record HitCount(Integer appId, Integer uriId, Long hits) {
+
+    public long key() {
+        return key(appId, uriId);
+    }
+
+    public static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.service.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// IP хранится в бинарном виде: 4 байта для IPv4 и 16 байт для IPv6.
+// Имена хостов не принимаются, чтобы разбор адреса никогда не обращался к DNS
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    public static byte[] toBytes(String ip) {
+        String value = ip.trim();
+        return value.indexOf(':') >= 0 ? parseIpv6(value, ip) : parseIpv4(value, ip);
+    }
+
+    public static String toString(byte[] ip) {
+        try {
+            return InetAddress.getByAddress(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректная длина IP-адреса: " + ip.length);
+        }
+    }
+
+    private static byte[] parseIpv4(String value, String ip) {
+        String[] octets = value.split("\\.", -1);
+        if (octets.length != 4) {
+            throw invalid(ip);
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) parseOctet(octets[i], ip);
+        }
+        return bytes;
+    }
+
+    // Разбор без InetAddress.getByName: строка, не являющаяся адресом, не уходит в DNS.
+    // Группы по 1–4 шестнадцатеричные цифры, не больше одного «::» и IPv4 в последних 32 битах;
+    // зона (%eth0) не принимается. IPv4-mapped (::ffff:a.b.c.d) хранится как IPv4
+    private static byte[] parseIpv6(String value, String ip) {
+        int gap = value.indexOf("::");
+        if (gap >= 0 && value.indexOf("::", gap + 1) >= 0) {
+            throw invalid(ip);
+        }
+        byte[] head = parseGroups(gap >= 0 ? value.substring(0, gap) : value, gap < 0, ip);
+        byte[] tail = gap >= 0 ? parseGroups(value.substring(gap + 2), true, ip) : new byte[0];
+        if (gap < 0 ? head.length != 16 : head.length + tail.length > 14) {
+            throw invalid(ip);
+        }
+
+        byte[] bytes = new byte[16];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(tail, 0, bytes, 16 - tail.length, tail.length);
+        for (int i = 0; i < 10; i++) {
+            if (bytes[i] != 0) {
+                return bytes;
+            }
+        }
+        return bytes[10] == (byte) 0xff && bytes[11] == (byte) 0xff ? Arrays.copyOfRange(bytes, 12, 16) : bytes;
+    }
+
+    // withIpv4 — часть стоит в конце адреса, и её последняя группа может быть IPv4
+    private static byte[] parseGroups(String part, boolean withIpv4, String ip) {
+        if (part.isEmpty()) {
+            return new byte[0];
+        }
+        String[] groups = part.split(":", -1);
+        if (groups.length > 8) {
+            throw invalid(ip);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(groups.length * 2 + 2);
+        for (int i = 0; i < groups.length; i++) {
+            String group = groups[i];
+            if (withIpv4 && i == groups.length - 1 && group.indexOf('.') >= 0) {
+                buffer.put(parseIpv4(group, ip));
+                continue;
+            }
+            if (group.isEmpty() || group.length() > 4 || !group.chars().allMatch(IpAddresses::isHexDigit)) {
+                throw invalid(ip);
+            }
+            buffer.putShort((short) Integer.parseInt(group, 16));
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static int parseOctet(String octet, String ip) {
+        if (octet.isEmpty() || octet.length() > 3 || !octet.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw invalid(ip);
+        }
+        int value = Integer.parseInt(octet);
+        if (value > 255) {
+            throw invalid(ip);
+        }
+        return value;
+    }
+
+    private static boolean isHexDigit(int c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static IllegalArgumentException invalid(String ip) {
+        return new IllegalArgumentException("Некорректный IP-адрес: " + ip);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.service.model;
+
+import java.time.LocalDateTime;
+
+// Полуоткрытый интервал [from, to)
+public record TimeRange(LocalDateTime from, LocalDateTime to) {
+
+    public boolean isEmpty() {
+        return !from.isBefore(to);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.service.model;
+
+import java.time.LocalDateTime;
+
+// Состояние выгрузки или загрузки запросов; finishedAt == null — ещё выполняется
+public record TransferStatus(String id, String type, long rows, LocalDateTime startedAt,
+                             LocalDateTime finishedAt, String error) {
+}
@@ -0,0 +1,5 @@
+package ru.practicum.service.model;
+
+// Просмотры uri за всё время, суммарно по всем сервисам
+public record UriViews(int uriId, long hits, long uniqueHits) {
+}
@@ -0,0 +1,59 @@
+package ru.practicum.service.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Разбиение окна запроса на целые бакеты агрегатов и «края», которые считаются по сырым данным.
+// Сначала окно выравнивается по минутам, внутри — по часам, внутри — по суткам, поэтому
+// число бакетов зависит от длины окна (сутки плюс не более 2 * (23 + 59) краевых бакетов),
+// а не от числа сохранённых запросов
+public record WindowPlan(List<TimeRange> rawRanges, List<BucketRange> bucketRanges) {
+
+    public record BucketRange(BucketGranularity granularity, TimeRange range) {
+    }
+
+    public static WindowPlan of(LocalDateTime from, LocalDateTime to) {
+        List<TimeRange> raw = new ArrayList<>();
+        List<BucketRange> buckets = new ArrayList<>();
+        split(from, to, 0, raw, buckets);
+        return new WindowPlan(raw, buckets);
+    }
+
+    private static void split(LocalDateTime from, LocalDateTime to, int level,
+                              List<TimeRange> raw, List<BucketRange> buckets) {
+        BucketGranularity[] levels = BucketGranularity.values();
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == levels.length) {
+            buckets.add(new BucketRange(levels[level - 1], new TimeRange(from, to)));
+            return;
+        }
+
+        BucketGranularity granularity = levels[level];
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+
+        if (!alignedFrom.isBefore(alignedTo)) {
+            add(from, to, level, raw, buckets);
+            return;
+        }
+        add(from, alignedFrom, level, raw, buckets);
+        split(alignedFrom, alignedTo, level + 1, raw, buckets);
+        add(alignedTo, to, level, raw, buckets);
+    }
+
+    // Остаток, не покрытый бакетами текущего уровня, закрывается бакетами предыдущего уровня
+    private static void add(LocalDateTime from, LocalDateTime to, int level,
+                            List<TimeRange> raw, List<BucketRange> buckets) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == 0) {
+            raw.add(new TimeRange(from, to));
+        } else {
+            buckets.add(new BucketRange(BucketGranularity.values()[level - 1], new TimeRange(from, to)));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.model.BackfillState;
+import ru.practicum.service.model.BackfillStatus;
+import ru.practicum.service.model.TimeRange;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class BackfillRepository {
+
+    private static final String SAVE_STATE = """
+            INSERT INTO rollup_backfill (id, range_from, range_to, next_from, status, chunks, throttle_ms,
+                                         started_at, updated_at, error)
+            VALUES (1, :rangeFrom, :rangeTo, :nextFrom, :status, :chunks, :throttleMs, :startedAt, :updatedAt, :error)
+            ON CONFLICT (id) DO UPDATE SET range_from = EXCLUDED.range_from, range_to = EXCLUDED.range_to,
+                next_from = EXCLUDED.next_from, status = EXCLUDED.status, chunks = EXCLUDED.chunks,
+                throttle_ms = EXCLUDED.throttle_ms, started_at = EXCLUDED.started_at,
+                updated_at = EXCLUDED.updated_at, error = EXCLUDED.error
+            """;
+
+    // Поминутные агрегаты считаются одним проходом по сырым запросам, часовые и суточные — из них
+    private static final String RECOMPUTE_ROLLUPS = """
+            INSERT INTO hit_rollups (granularity, bucket_start, app_id, uri_id, hits)
+            WITH minutes AS (
+                SELECT date_trunc('minute', hit_timestamp) AS bucket_start, app_id, uri_id, COUNT(*) AS hits
+                FROM endpoint_hits
+                WHERE hit_timestamp >= :from AND hit_timestamp < :to
+                GROUP BY 1, 2, 3
+            )
+            SELECT 'MINUTE', bucket_start, app_id, uri_id, hits FROM minutes
+            UNION ALL
+            SELECT 'HOUR', date_trunc('hour', bucket_start), app_id, uri_id, SUM(hits) FROM minutes GROUP BY 2, 3, 4
+            UNION ALL
+            SELECT 'DAY', date_trunc('day', bucket_start), app_id, uri_id, SUM(hits) FROM minutes GROUP BY 2, 3, 4
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Optional<BackfillState> findState() {
+        return jdbcTemplate.query("SELECT * FROM rollup_backfill WHERE id = 1", (rs, rowNum) -> new BackfillState(
+                rs.getTimestamp("range_from").toLocalDateTime(),
+                rs.getTimestamp("range_to").toLocalDateTime(),
+                rs.getTimestamp("next_from").toLocalDateTime(),
+                BackfillStatus.valueOf(rs.getString("status")),
+                rs.getLong("chunks"),
+                rs.getLong("throttle_ms"),
+                rs.getTimestamp("started_at").toLocalDateTime(),
+                rs.getTimestamp("updated_at").toLocalDateTime(),
+                rs.getString("error"))).stream().findFirst();
+    }
+
+    public void saveState(BackfillState state) {
+        jdbcTemplate.update(SAVE_STATE, new MapSqlParameterSource()
+                .addValue("rangeFrom", Timestamp.valueOf(state.rangeFrom()))
+                .addValue("rangeTo", Timestamp.valueOf(state.rangeTo()))
+                .addValue("nextFrom", Timestamp.valueOf(state.nextFrom()))
+                .addValue("status", state.status().name())
+                .addValue("chunks", state.chunks())
+                .addValue("throttleMs", state.throttleMs())
+                .addValue("startedAt", Timestamp.valueOf(state.startedAt()))
+                .addValue("updatedAt", Timestamp.valueOf(state.updatedAt()))
+                .addValue("error", state.error()));
+    }
+
+    // Keyset-переход к следующему запросу по индексу времени: пустые сутки пропускаются сразу
+    public Optional<LocalDateTime> findNextHit(LocalDateTime from, LocalDateTime to) {
+        Timestamp next = jdbcTemplate.queryForObject("SELECT MIN(hit_timestamp) FROM endpoint_hits " +
+                        "WHERE hit_timestamp >= :from AND hit_timestamp < :to",
+                new MapSqlParameterSource()
+                        .addValue("from", Timestamp.valueOf(from))
+                        .addValue("to", Timestamp.valueOf(to)),
+                Timestamp.class);
+        return Optional.ofNullable(next).map(Timestamp::toLocalDateTime);
+    }
+
+    // Агрегаты бакетов внутри [from, to) заменяются пересчитанными по сырым запросам целиком,
+    // поэтому повторная обработка тех же суток даёт тот же результат
+    public void recomputeRollups(TimeRange range) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(range.from()))
+                .addValue("to", Timestamp.valueOf(range.to()));
+        jdbcTemplate.update("DELETE FROM hit_rollups WHERE bucket_start >= :from AND bucket_start < :to", params);
+        jdbcTemplate.update(RECOMPUTE_ROLLUPS, params);
+    }
+}
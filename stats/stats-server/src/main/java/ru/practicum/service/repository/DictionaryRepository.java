@@ -0,0 +1,53 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.model.DictionaryKind;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // DO UPDATE нужен, чтобы RETURNING вернул id и для уже существующего значения
+    public int intern(DictionaryKind kind, String value) {
+        String sql = "INSERT INTO " + kind.getTable() + " (" + kind.getColumn() + ") VALUES (:value) " +
+                "ON CONFLICT (" + kind.getColumn() + ") DO UPDATE SET " + kind.getColumn() + " = EXCLUDED." +
+                kind.getColumn() + " RETURNING id";
+        return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource("value", value), Integer.class);
+    }
+
+    public Map<Integer, String> findValues(DictionaryKind kind, Collection<Integer> ids) {
+        Map<Integer, String> values = new HashMap<>();
+        jdbcTemplate.query("SELECT id, " + kind.getColumn() + " FROM " + kind.getTable() + " WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                (RowCallbackHandler) rs -> values.put(rs.getInt(1), rs.getString(2)));
+        return values;
+    }
+
+    public Map<String, Integer> findIds(DictionaryKind kind, Collection<String> values) {
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, " + kind.getColumn() + " FROM " + kind.getTable() +
+                        " WHERE " + kind.getColumn() + " IN (:values)",
+                new MapSqlParameterSource("values", values),
+                (RowCallbackHandler) rs -> ids.put(rs.getString(2), rs.getInt(1)));
+        return ids;
+    }
+
+    public Map<Long, Integer> findEventUriIds(Collection<Long> eventIds) {
+        Map<Long, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, event_id FROM stat_uris WHERE event_id IN (:eventIds)",
+                new MapSqlParameterSource("eventIds", eventIds),
+                (RowCallbackHandler) rs -> ids.put(rs.getLong(2), rs.getInt(1)));
+        return ids;
+    }
+}
@@ -4,31 +4,31 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import ru.practicum.interactionapi.dto.stats.ViewStats;
 import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface EndpointHitRepository extends JpaRepository<EndpointHit, Long> {
 
-    @Query("SELECT new ru.practicum.interactionapi.dto.stats.ViewStats(e.app, e.uri, COUNT(e)) " +
+    @Query("SELECT new ru.practicum.service.model.HitCount(e.appId, e.uriId, COUNT(DISTINCT e.ip)) " +
             "FROM EndpointHit e " +
             "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(e) DESC")
-    List<ViewStats> findStats(@Param("start") LocalDateTime start,
-                              @Param("end") LocalDateTime end,
-                              @Param("uris") List<String> uris);
+            "AND (:uriIds IS NULL OR e.uriId IN :uriIds) " +
+            "GROUP BY e.appId, e.uriId " +
+            "ORDER BY COUNT(DISTINCT e.ip) DESC")
+    List<HitCount> findStatsUnique(@Param("start") LocalDateTime start,
+                                   @Param("end") LocalDateTime end,
+                                   @Param("uriIds") List<Integer> uriIds);
 
-    @Query("SELECT new ru.practicum.interactionapi.dto.stats.ViewStats(e.app, e.uri, COUNT(DISTINCT e.ip)) " +
+    // Полуоткрытый интервал [start, end) — для краёв окна, не покрытых агрегатами
+    @Query("SELECT new ru.practicum.service.model.HitCount(e.appId, e.uriId, COUNT(e)) " +
             "FROM EndpointHit e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(DISTINCT e.ip) DESC")
-    List<ViewStats> findStatsUnique(@Param("start") LocalDateTime start,
-                                    @Param("end") LocalDateTime end,
-                                    @Param("uris") List<String> uris);
-}
\ No newline at end of file
+            "WHERE e.timestamp >= :start AND e.timestamp < :end " +
+            "AND (:uriIds IS NULL OR e.uriId IN :uriIds) " +
+            "GROUP BY e.appId, e.uriId")
+    List<HitCount> countInRange(@Param("start") LocalDateTime start,
+                                @Param("end") LocalDateTime end,
+                                @Param("uriIds") List<Integer> uriIds);
+}
@@ -0,0 +1,48 @@
+package ru.practicum.service.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.columnar.HitColumns;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.sketch.HyperLogLog;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public class HitColumnRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public HitColumnRepository(DataSource dataSource,
+                               @Value("${stats.analytics.fetch-size:10000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    // Границы окна уходят в WHERE, поэтому читаются только нужные секции endpoint_hits.
+    // Курсор по fetch-size строк работает только внутри транзакции
+    public HitColumns load(TimeRange range, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(range.from()))
+                .addValue("to", Timestamp.valueOf(range.to()));
+        String sql = "SELECT app_id, uri_id, ip FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :from AND hit_timestamp < :to";
+        if (uriIds != null) {
+            sql += " AND uri_id IN (:uriIds)";
+            params.addValue("uriIds", uriIds);
+        }
+
+        HitColumns columns = new HitColumns(jdbcTemplate.getJdbcTemplate().getFetchSize());
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                columns.add(rs.getInt(1), rs.getInt(2), HyperLogLog.hash(rs.getBytes(3))));
+        return columns;
+    }
+}
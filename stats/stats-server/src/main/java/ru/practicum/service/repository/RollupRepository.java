@@ -0,0 +1,157 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.model.WindowPlan;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+
+    private static final String UPSERT_ROLLUP = """
+            INSERT INTO hit_rollups (granularity, bucket_start, app_id, uri_id, hits)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket_start, app_id, uri_id)
+            DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits
+            """;
+
+    // Ключ advisory-блокировки записи агрегатов: запись запросов берёт её разделяемой,
+    // пересчёт агрегатов за сутки — исключительной
+    private static final long ROLLUP_LOCK = 0x726f6c6c7570L;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public record RollupKey(BucketGranularity granularity, LocalDateTime bucketStart, int appId, int uriId) {
+    }
+
+    public void increment(List<Map.Entry<RollupKey, Long>> deltas) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_ROLLUP, deltas, deltas.size(), (ps, delta) -> {
+            RollupKey key = delta.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setInt(3, key.appId());
+            ps.setInt(4, key.uriId());
+            ps.setLong(5, delta.getValue());
+        });
+    }
+
+    public List<HitCount> sumHits(List<WindowPlan.BucketRange> ranges, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, SUM(hits) AS hits FROM hit_rollups WHERE (");
+        for (int i = 0; i < ranges.size(); i++) {
+            WindowPlan.BucketRange range = ranges.get(i);
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append("(granularity = :g").append(i)
+                    .append(" AND bucket_start >= :f").append(i)
+                    .append(" AND bucket_start < :t").append(i).append(")");
+            params.addValue("g" + i, range.granularity().name());
+            params.addValue("f" + i, Timestamp.valueOf(range.range().from()));
+            params.addValue("t" + i, Timestamp.valueOf(range.range().to()));
+        }
+        sql.append(")");
+        if (uriIds != null) {
+            sql.append(" AND uri_id IN (:uriIds)");
+            params.addValue("uriIds", uriIds);
+        }
+        sql.append(" GROUP BY app_id, uri_id");
+
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) ->
+                new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+
+    // Суммы по бакетам одной гранулярности начиная с from, по всем сервисам
+    public void sumBuckets(BucketGranularity granularity, LocalDateTime from, List<Integer> uriIds,
+                           BucketConsumer consumer) {
+        jdbcTemplate.query("SELECT uri_id, bucket_start, SUM(hits) FROM hit_rollups " +
+                        "WHERE granularity = :granularity AND bucket_start >= :from AND uri_id IN (:uriIds) " +
+                        "GROUP BY uri_id, bucket_start",
+                new MapSqlParameterSource()
+                        .addValue("granularity", granularity.name())
+                        .addValue("from", Timestamp.valueOf(from))
+                        .addValue("uriIds", uriIds),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getLong(3)));
+    }
+
+    // То же по сырым запросам — для времени до rollupFrom
+    public void countRawBuckets(BucketGranularity granularity, TimeRange range, List<Integer> uriIds,
+                                BucketConsumer consumer) {
+        jdbcTemplate.query("SELECT uri_id, date_trunc(:unit, hit_timestamp) AS bucket_start, COUNT(*) " +
+                        "FROM endpoint_hits " +
+                        "WHERE hit_timestamp >= :from AND hit_timestamp < :to AND uri_id IN (:uriIds) " +
+                        "GROUP BY uri_id, bucket_start",
+                new MapSqlParameterSource()
+                        .addValue("unit", granularity.name().toLowerCase())
+                        .addValue("from", Timestamp.valueOf(range.from()))
+                        .addValue("to", Timestamp.valueOf(range.to()))
+                        .addValue("uriIds", uriIds),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getLong(3)));
+    }
+
+    // Момент, начиная с которого все запросы гарантированно учтены в агрегатах.
+    // Если сырых запросов ещё нет, агрегаты полны с самого начала
+    public LocalDateTime initRollupFrom(LocalDateTime now, LocalDateTime origin) {
+        jdbcTemplate.update("INSERT INTO stats_rollup_state (id, rollup_from) " +
+                        "SELECT 1, CASE WHEN EXISTS (SELECT 1 FROM endpoint_hits) THEN :now ELSE :origin END " +
+                        "ON CONFLICT (id) DO NOTHING",
+                new MapSqlParameterSource()
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("origin", Timestamp.valueOf(origin)));
+        return findRollupFrom();
+    }
+
+    // rollup_from только уменьшается: более ранний момент не может сделать агрегаты неполными
+    public void lowerRollupFrom(LocalDateTime from) {
+        jdbcTemplate.update("UPDATE stats_rollup_state SET rollup_from = LEAST(rollup_from, :from) WHERE id = 1",
+                new MapSqlParameterSource("from", Timestamp.valueOf(from)));
+    }
+
+    public void lockShared() {
+        jdbcTemplate.getJdbcTemplate().execute("SELECT pg_advisory_xact_lock_shared(" + ROLLUP_LOCK + ")");
+    }
+
+    public void lockExclusive() {
+        jdbcTemplate.getJdbcTemplate().execute("SELECT pg_advisory_xact_lock(" + ROLLUP_LOCK + ")");
+    }
+
+    // Фиксирует снимок транзакции REPEATABLE READ, пока вставка в endpoint_hits остановлена:
+    // SHARE-блокировка дожидается уже идущих транзакций записи и не пускает новые. whileBlocked
+    // выполняется под блокировкой; сама блокировка снимается откатом к точке сохранения, а снимок
+    // остаётся до конца транзакции. Должен быть первым запросом транзакции
+    public long snapshotHits(LongSupplier whileBlocked) {
+        JdbcTemplate jdbc = jdbcTemplate.getJdbcTemplate();
+        jdbc.execute("SAVEPOINT hits_snapshot");
+        jdbc.execute("LOCK TABLE endpoint_hits IN SHARE MODE");
+        long result = whileBlocked.getAsLong();
+        jdbc.queryForObject("SELECT 1", Integer.class);
+        jdbc.execute("ROLLBACK TO SAVEPOINT hits_snapshot");
+        return result;
+    }
+
+    public LocalDateTime findRollupFrom() {
+        return jdbcTemplate.queryForObject("SELECT rollup_from FROM stats_rollup_state WHERE id = 1",
+                new MapSqlParameterSource(), Timestamp.class).toLocalDateTime();
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(int uriId, LocalDateTime bucketStart, long hits);
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+
+    private static final String INSERT_EMPTY = """
+            INSERT INTO hit_sketches (bucket_start, app_id, uri_id, registers)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (bucket_start, app_id, uri_id) DO NOTHING
+            """;
+
+    private static final String UPDATE_REGISTERS =
+            "UPDATE hit_sketches SET registers = ? WHERE bucket_start = ? AND app_id = ? AND uri_id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public record SketchKey(LocalDateTime bucketStart, int appId, int uriId) {
+    }
+
+    // Регистры объединяются под блокировкой строки: сначала гарантируем её наличие, затем
+    // читаем FOR UPDATE в порядке ключей, сливаем в памяти и перезаписываем
+    public void merge(List<Map.Entry<SketchKey, HyperLogLog>> deltas) {
+        byte[] empty = new HyperLogLog().toBytes();
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_EMPTY, deltas, deltas.size(), (ps, delta) -> {
+            SketchKey key = delta.getKey();
+            ps.setTimestamp(1, Timestamp.valueOf(key.bucketStart()));
+            ps.setInt(2, key.appId());
+            ps.setInt(3, key.uriId());
+            ps.setBytes(4, empty);
+        });
+
+        Map<SketchKey, HyperLogLog> current = new HashMap<>();
+        List<Object[]> keys = deltas.stream()
+                .map(delta -> new Object[]{Timestamp.valueOf(delta.getKey().bucketStart()),
+                        delta.getKey().appId(), delta.getKey().uriId()})
+                .toList();
+        jdbcTemplate.query("SELECT bucket_start, app_id, uri_id, registers FROM hit_sketches " +
+                        "WHERE (bucket_start, app_id, uri_id) IN (:keys) " +
+                        "ORDER BY bucket_start, app_id, uri_id FOR UPDATE",
+                new MapSqlParameterSource("keys", keys),
+                (RowCallbackHandler) rs -> current.put(
+                        new SketchKey(rs.getTimestamp("bucket_start").toLocalDateTime(),
+                                rs.getInt("app_id"), rs.getInt("uri_id")),
+                        HyperLogLog.fromBytes(rs.getBytes("registers"))));
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_REGISTERS, deltas, deltas.size(), (ps, delta) -> {
+            SketchKey key = delta.getKey();
+            HyperLogLog merged = current.getOrDefault(key, new HyperLogLog());
+            merged.merge(delta.getValue());
+            ps.setBytes(1, merged.toBytes());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setInt(3, key.appId());
+            ps.setInt(4, key.uriId());
+        });
+    }
+
+    // Скетчи суток заменяются целиком — для пересчёта по сырым запросам
+    public void replaceDay(LocalDateTime day, Map<Long, HyperLogLog> sketches) {
+        jdbcTemplate.update("DELETE FROM hit_sketches WHERE bucket_start = :day",
+                new MapSqlParameterSource("day", Timestamp.valueOf(day)));
+        List<Map.Entry<Long, HyperLogLog>> rows = List.copyOf(sketches.entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO hit_sketches (bucket_start, app_id, uri_id, registers) VALUES (?, ?, ?, ?)",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(day));
+                    ps.setInt(2, (int) (row.getKey() >>> 32));
+                    ps.setInt(3, row.getKey().intValue());
+                    ps.setBytes(4, row.getValue().toBytes());
+                });
+    }
+
+    // Суточные скетчи за [from, to) сливаются в один скетч на пару (app, uri)
+    public void collect(TimeRange days, List<Integer> uriIds, SketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(days.from()))
+                .addValue("to", Timestamp.valueOf(days.to()));
+        String sql = "SELECT app_id, uri_id, registers FROM hit_sketches " +
+                "WHERE bucket_start >= :from AND bucket_start < :to";
+        if (uriIds != null) {
+            sql += " AND uri_id IN (:uriIds)";
+            params.addValue("uriIds", uriIds);
+        }
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(
+                rs.getInt("app_id"), rs.getInt("uri_id"), HyperLogLog.fromBytes(rs.getBytes("registers"))));
+    }
+
+    // IP из сырых запросов для краёв окна, не покрытых целыми сутками
+    public void collectRawIps(TimeRange range, List<Integer> uriIds, RawIpConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(range.from()))
+                .addValue("to", Timestamp.valueOf(range.to()));
+        String sql = "SELECT DISTINCT app_id, uri_id, ip FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :from AND hit_timestamp < :to";
+        if (uriIds != null) {
+            sql += " AND uri_id IN (:uriIds)";
+            params.addValue("uriIds", uriIds);
+        }
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(
+                rs.getInt("app_id"), rs.getInt("uri_id"), rs.getBytes("ip")));
+    }
+
+    @FunctionalInterface
+    public interface SketchConsumer {
+        void accept(int appId, int uriId, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface RawIpConsumer {
+        void accept(int appId, int uriId, byte[] ip);
+    }
+}
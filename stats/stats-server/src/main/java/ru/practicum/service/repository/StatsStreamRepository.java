@@ -0,0 +1,127 @@
+package ru.practicum.service.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.model.WindowPlan;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Статистика целиком считается в БД и читается курсором порциями по fetch-size строк.
+// Драйвер PostgreSQL использует курсор только внутри транзакции, поэтому вызывать в ней
+@Repository
+public class StatsStreamRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StatsStreamRepository(DataSource dataSource,
+                                 @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    // Суммы по сырым краям окна и по бакетам агрегатов складываются в одном запросе
+    public void streamHits(WindowPlan plan, List<Integer> uriIds, Integer limit, Consumer<ViewStats> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> parts = new ArrayList<>();
+
+        List<String> rawConditions = new ArrayList<>();
+        for (TimeRange range : plan.rawRanges()) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int i = rawConditions.size();
+            rawConditions.add("(hit_timestamp >= :rf" + i + " AND hit_timestamp < :rt" + i + ")");
+            params.addValue("rf" + i, Timestamp.valueOf(range.from()));
+            params.addValue("rt" + i, Timestamp.valueOf(range.to()));
+        }
+        if (!rawConditions.isEmpty()) {
+            parts.add("SELECT app_id, uri_id, COUNT(*) AS hits FROM endpoint_hits WHERE (" +
+                    String.join(" OR ", rawConditions) + ")" + uriFilter(uriIds, params) +
+                    " GROUP BY app_id, uri_id");
+        }
+
+        List<String> bucketConditions = new ArrayList<>();
+        for (WindowPlan.BucketRange range : plan.bucketRanges()) {
+            int i = bucketConditions.size();
+            bucketConditions.add("(granularity = :g" + i + " AND bucket_start >= :bf" + i +
+                    " AND bucket_start < :bt" + i + ")");
+            params.addValue("g" + i, range.granularity().name());
+            params.addValue("bf" + i, Timestamp.valueOf(range.range().from()));
+            params.addValue("bt" + i, Timestamp.valueOf(range.range().to()));
+        }
+        if (!bucketConditions.isEmpty()) {
+            parts.add("SELECT app_id, uri_id, SUM(hits) AS hits FROM hit_rollups WHERE (" +
+                    String.join(" OR ", bucketConditions) + ")" + uriFilter(uriIds, params) +
+                    " GROUP BY app_id, uri_id");
+        }
+
+        if (parts.isEmpty()) {
+            return;
+        }
+        query("SELECT app_id, uri_id, SUM(hits) AS hits FROM (" + String.join(" UNION ALL ", parts) +
+                ") parts GROUP BY app_id, uri_id", params, limit, consumer);
+    }
+
+    public void streamUniqueHits(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Integer limit,
+                                 Consumer<ViewStats> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        query("SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM endpoint_hits " +
+                "WHERE hit_timestamp BETWEEN :start AND :end" + uriFilter(uriIds, params) +
+                " GROUP BY app_id, uri_id", params, limit, consumer);
+    }
+
+    // Сырые запросы с именами app и uri в порядке времени — для выгрузки
+    public void streamRawHits(LocalDateTime start, LocalDateTime end, RawHitConsumer consumer) {
+        jdbcTemplate.query("SELECT a.name, u.uri, h.ip, h.hit_timestamp FROM endpoint_hits h " +
+                        "JOIN stat_apps a ON a.id = h.app_id " +
+                        "JOIN stat_uris u ON u.id = h.uri_id " +
+                        "WHERE h.hit_timestamp BETWEEN :start AND :end " +
+                        "ORDER BY h.hit_timestamp",
+                new MapSqlParameterSource()
+                        .addValue("start", Timestamp.valueOf(start))
+                        .addValue("end", Timestamp.valueOf(end)),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getString(2), rs.getBytes(3),
+                        rs.getTimestamp(4).toLocalDateTime()));
+    }
+
+    private void query(String counts, MapSqlParameterSource params, Integer limit, Consumer<ViewStats> consumer) {
+        String sql = "SELECT a.name, u.uri, c.hits FROM (" + counts + ") c " +
+                "JOIN stat_apps a ON a.id = c.app_id " +
+                "JOIN stat_uris u ON u.id = c.uri_id " +
+                "ORDER BY c.hits DESC";
+        if (limit != null) {
+            sql += " LIMIT :limit";
+            params.addValue("limit", limit);
+        }
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                consumer.accept(new ViewStats(rs.getString(1), rs.getString(2), rs.getLong(3))));
+    }
+
+    private String uriFilter(List<Integer> uriIds, MapSqlParameterSource params) {
+        if (uriIds == null) {
+            return "";
+        }
+        params.addValue("uriIds", uriIds);
+        return " AND uri_id IN (:uriIds)";
+    }
+
+    @FunctionalInterface
+    public interface RawHitConsumer {
+        void accept(String app, String uri, byte[] ip, LocalDateTime timestamp);
+    }
+}
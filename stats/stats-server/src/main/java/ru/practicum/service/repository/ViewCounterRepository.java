@@ -0,0 +1,49 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.practicum.service.sketch.HyperLogLog;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ViewCounterRepository {
+
+    private static final String UPSERT_COUNTER = """
+            INSERT INTO view_counters (app_id, uri_id, hits, registers)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (uri_id, app_id)
+            DO UPDATE SET hits = view_counters.hits + EXCLUDED.hits, registers = EXCLUDED.registers
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public record CounterRow(int appId, int uriId, long hits, HyperLogLog sketch) {
+    }
+
+    public List<CounterRow> findByUris(List<Integer> uriIds) {
+        return jdbcTemplate.query(
+                "SELECT app_id, uri_id, hits, registers FROM view_counters WHERE uri_id IN (:uriIds)",
+                new MapSqlParameterSource("uriIds", uriIds),
+                (rs, rowNum) -> new CounterRow(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"),
+                        HyperLogLog.fromBytes(rs.getBytes("registers"))));
+    }
+
+    // hits в строке приходит приращением, скетч — целиком
+    public void save(List<CounterRow> rows) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_COUNTER, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.appId());
+            ps.setInt(2, row.uriId());
+            ps.setLong(3, row.hits());
+            ps.setBytes(4, row.sketch().toBytes());
+        });
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM view_counters");
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.service.segment;
+
+import ru.practicum.service.model.EndpointHit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Файл сегмента, целиком отображённый в память: заголовок и записи фиксированной длины.
+// Заголовок: magic, версия, число записей, min и max времени запроса.
+// Запись: время в микросекундах от эпохи (UTC, 8 байт), app_id (4), uri_id (4), IP (16 байт,
+// IPv4 хранится как IPv4-mapped IPv6). Записи идут в порядке поступления, поэтому для пропуска
+// частей файла при чтении по каждому блоку из BLOCK_RECORDS записей хранятся min и max времени.
+// Пишет один поток; читатели видят только записи до опубликованного count
+public class Segment {
+
+    private static final int MAGIC = 0x45574d53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+    private static final int BLOCK_RECORDS = 4096;
+
+    private static final int COUNT_OFFSET = 8;
+    private static final int MIN_OFFSET = 16;
+    private static final int MAX_OFFSET = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long[] blockMin;
+    private final long[] blockMax;
+
+    private volatile int count;
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    private Segment(Path path, FileChannel channel, int capacity) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        int blocks = (capacity + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        this.blockMin = new long[blocks];
+        this.blockMax = new long[blocks];
+        Arrays.fill(blockMin, Long.MAX_VALUE);
+        Arrays.fill(blockMax, Long.MIN_VALUE);
+    }
+
+    public static Segment create(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(path, channel, capacity);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.writeHeader();
+        return segment;
+    }
+
+    // Разреженный индекс не сохраняется в файле и строится заново одним проходом по записям
+    public static Segment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        Segment segment = new Segment(path, channel, capacity);
+        if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Файл не является сегментом статистики: " + path);
+        }
+
+        int stored = segment.buffer.getInt(COUNT_OFFSET);
+        for (int i = 0; i < stored; i++) {
+            segment.index(i, segment.buffer.getLong(offset(i)));
+        }
+        segment.count = stored;
+        return segment;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    public void append(EndpointHit hit) {
+        int position = count;
+        int offset = offset(position);
+        long timestamp = toMicros(hit.getTimestamp());
+        buffer.putLong(offset, timestamp);
+        buffer.putInt(offset + 8, hit.getAppId());
+        buffer.putInt(offset + 12, hit.getUriId());
+        putIp(offset + 16, hit.getIp());
+        index(position, timestamp);
+        count = position + 1;
+        writeHeader();
+    }
+
+    // Интервал [from, to] включает обе границы; uriIds == null — все uri
+    public void scan(long from, long to, BitSet uriIds, RecordConsumer consumer) {
+        int published = count;
+        if (published == 0 || to < minTimestamp || from > maxTimestamp) {
+            return;
+        }
+
+        for (int block = 0; block * BLOCK_RECORDS < published; block++) {
+            if (to < blockMin[block] || from > blockMax[block]) {
+                continue;
+            }
+            int end = Math.min((block + 1) * BLOCK_RECORDS, published);
+            for (int i = block * BLOCK_RECORDS; i < end; i++) {
+                int offset = offset(i);
+                long timestamp = buffer.getLong(offset);
+                if (timestamp < from || timestamp > to) {
+                    continue;
+                }
+                int uriId = buffer.getInt(offset + 12);
+                if (uriIds != null && !uriIds.get(uriId)) {
+                    continue;
+                }
+                consumer.accept(buffer.getInt(offset + 8), uriId,
+                        buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+            }
+        }
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    public static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1000;
+    }
+
+    private void index(int position, long timestamp) {
+        int block = position / BLOCK_RECORDS;
+        blockMin[block] = Math.min(blockMin[block], timestamp);
+        blockMax[block] = Math.max(blockMax[block], timestamp);
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putLong(MIN_OFFSET, minTimestamp);
+        buffer.putLong(MAX_OFFSET, maxTimestamp);
+    }
+
+    private void putIp(int offset, byte[] ip) {
+        if (ip.length == 4) {
+            buffer.putLong(offset, 0);
+            buffer.putInt(offset + 8, 0x0000ffff);
+            buffer.put(offset + 12, ip);
+        } else {
+            buffer.put(offset, ip);
+        }
+    }
+
+    private static int offset(int position) {
+        return HEADER_SIZE + position * RECORD_SIZE;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(int appId, int uriId, long ipHigh, long ipLow);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.service.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+// Нумерация пакетов запросов для счётчиков в памяти. Номер выдаётся в транзакции записи после
+// вставки в endpoint_hits, поэтому в снимке RollupRepository.snapshotHits агрегаты содержат
+// ровно пакеты с номером не больше awaitCurrent()
+class BatchSequence {
+
+    private final AtomicLong last = new AtomicLong();
+    // Пакеты, транзакция которых ещё не завершилась (или не отработал afterCommit)
+    private final ConcurrentSkipListSet<Long> uncommitted = new ConcurrentSkipListSet<>();
+
+    // action получает номер пакета и выполняется только после фиксации транзакции записи
+    void afterCommit(LongConsumer action) {
+        long number = last.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(number);
+            return;
+        }
+        uncommitted.add(number);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.accept(number);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                uncommitted.remove(number);
+            }
+        });
+    }
+
+    long current() {
+        return last.get();
+    }
+
+    // Номер последнего пакета после завершения всех пакетов до него включительно
+    long awaitCurrent() {
+        long number = current();
+        awaitCompleted(number);
+        return number;
+    }
+
+    // После этого пакеты с номером не больше number уже не придут в afterCommit
+    void awaitCompleted(long number) {
+        while (uncommitted.floor(number) != null) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание фиксации пакетов запросов прервано", e);
+            }
+        }
+    }
+}
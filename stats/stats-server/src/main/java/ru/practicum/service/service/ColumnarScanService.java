@@ -0,0 +1,112 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.service.columnar.ColumnAggregation;
+import ru.practicum.service.columnar.ColumnAggregation.Aggregate;
+import ru.practicum.service.columnar.HitColumns;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.repository.HitColumnRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Аналитика для администратора по сырым запросам без агрегатов: окно режется на отрезки
+// по chunk-hours, отрезки параллельно загружаются в столбцы и агрегируются в отдельном
+// ForkJoinPool. Одновременно в памяти не больше parallelism отрезков.
+// Учитываются только сырые запросы, ещё не удалённые по retention-days
+@Service
+@Slf4j
+public class ColumnarScanService {
+
+    private final HitColumnRepository columnRepository;
+    private final HitDictionary dictionary;
+    private final TransactionTemplate loadTransaction;
+    private final ForkJoinPool pool;
+    private final long chunkHours;
+
+    public ColumnarScanService(HitColumnRepository columnRepository,
+                               HitDictionary dictionary,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${stats.analytics.parallelism:4}") int parallelism,
+                               @Value("${stats.analytics.chunk-hours:24}") long chunkHours) {
+        this.columnRepository = columnRepository;
+        this.dictionary = dictionary;
+        this.chunkHours = chunkHours;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        // Каждый загружающий поток держит своё соединение: parallelism должен быть меньше пула
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        List<Integer> uriIds = uris == null || uris.isEmpty() ? null : dictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<TimeRange> chunks = new ArrayList<>();
+        LocalDateTime endExclusive = end.plusNanos(1000);
+        for (LocalDateTime from = start; from.isBefore(endExclusive); from = from.plusHours(chunkHours)) {
+            LocalDateTime to = from.plusHours(chunkHours);
+            chunks.add(new TimeRange(from, to.isBefore(endExclusive) ? to : endExclusive));
+        }
+
+        long started = System.nanoTime();
+        Map<Long, Aggregate> aggregates = pool.invoke(new ChunkScan(chunks, uriIds, unique));
+        log.info("Колоночный проход по {} отрезкам занял {} мс", chunks.size(),
+                (System.nanoTime() - started) / 1_000_000);
+
+        List<HitCount> counts = aggregates.entrySet().stream()
+                .map(entry -> new HitCount((int) (entry.getKey() >>> 32), entry.getKey().intValue(),
+                        entry.getValue().value()))
+                .sorted(Comparator.comparing(HitCount::hits).reversed())
+                .toList();
+        return dictionary.toViewStats(counts);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    private class ChunkScan extends RecursiveTask<Map<Long, Aggregate>> {
+
+        private final List<TimeRange> chunks;
+        private final List<Integer> uriIds;
+        private final boolean unique;
+
+        ChunkScan(List<TimeRange> chunks, List<Integer> uriIds, boolean unique) {
+            this.chunks = chunks;
+            this.uriIds = uriIds;
+            this.unique = unique;
+        }
+
+        @Override
+        protected Map<Long, Aggregate> compute() {
+            if (chunks.size() > 1) {
+                int middle = chunks.size() / 2;
+                ChunkScan left = new ChunkScan(chunks.subList(0, middle), uriIds, unique);
+                left.fork();
+                Map<Long, Aggregate> right = new ChunkScan(chunks.subList(middle, chunks.size()), uriIds, unique)
+                        .compute();
+                return ColumnAggregation.merge(left.join(), right);
+            }
+
+            HitColumns columns = loadTransaction.execute(status -> columnRepository.load(chunks.get(0), uriIds));
+            return new ColumnAggregation(columns, unique).invoke();
+        }
+    }
+}
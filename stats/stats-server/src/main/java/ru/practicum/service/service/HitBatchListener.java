@@ -0,0 +1,11 @@
+package ru.practicum.service.service;
+
+import ru.practicum.service.model.EndpointHit;
+
+import java.util.List;
+
+// Вызывается HitWriter в той же транзакции, что и вставка сырых запросов
+public interface HitBatchListener {
+
+    void onHits(List<EndpointHit> hits);
+}
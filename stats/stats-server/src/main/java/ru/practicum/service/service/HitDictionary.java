@@ -0,0 +1,122 @@
+package ru.practicum.service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.service.model.DictionaryKind;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.repository.DictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Словари app и uri с суррогатными целочисленными ключами. Значения словарей не меняются
+// после вставки, поэтому кэш в обе стороны не требует инвалидации
+@Service
+@RequiredArgsConstructor
+public class HitDictionary {
+
+    private final DictionaryRepository dictionaryRepository;
+
+    private final Map<DictionaryKind, Map<String, Integer>> idsByValue = new EnumMap<>(Map.of(
+            DictionaryKind.APP, new ConcurrentHashMap<>(),
+            DictionaryKind.URI, new ConcurrentHashMap<>()));
+    private final Map<DictionaryKind, Map<Integer, String>> valuesById = new EnumMap<>(Map.of(
+            DictionaryKind.APP, new ConcurrentHashMap<>(),
+            DictionaryKind.URI, new ConcurrentHashMap<>()));
+    private final Map<Long, Integer> uriIdsByEvent = new ConcurrentHashMap<>();
+
+    public int appId(String app) {
+        return intern(DictionaryKind.APP, app);
+    }
+
+    public int uriId(String uri) {
+        return intern(DictionaryKind.URI, uri);
+    }
+
+    // Фильтр по uri без пополнения словаря: неизвестные uri просто не попадают в результат
+    public List<Integer> findUriIds(Collection<String> uris) {
+        Map<String, Integer> cache = idsByValue.get(DictionaryKind.URI);
+        List<Integer> ids = new ArrayList<>(uris.size());
+        List<String> missing = new ArrayList<>();
+        for (String uri : uris) {
+            Integer id = cache.get(uri);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                missing.add(uri);
+            }
+        }
+        if (!missing.isEmpty()) {
+            dictionaryRepository.findIds(DictionaryKind.URI, missing).forEach((uri, id) -> {
+                remember(DictionaryKind.URI, uri, id);
+                ids.add(id);
+            });
+        }
+        return ids;
+    }
+
+    // Uri событий без единого просмотра в словаре нет и в результат не попадают
+    public Map<Long, Integer> findEventUriIds(Collection<Long> eventIds) {
+        Map<Long, Integer> ids = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            Integer id = uriIdsByEvent.get(eventId);
+            if (id != null) {
+                ids.put(eventId, id);
+            } else {
+                missing.add(eventId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, Integer> found = dictionaryRepository.findEventUriIds(missing);
+            uriIdsByEvent.putAll(found);
+            ids.putAll(found);
+        }
+        return ids;
+    }
+
+    public Map<Integer, String> uris(Collection<Integer> uriIds) {
+        return resolve(DictionaryKind.URI, uriIds);
+    }
+
+    public List<ViewStats> toViewStats(List<HitCount> counts) {
+        Map<Integer, String> apps = resolve(DictionaryKind.APP, counts.stream().map(HitCount::appId).toList());
+        Map<Integer, String> uris = resolve(DictionaryKind.URI, counts.stream().map(HitCount::uriId).toList());
+        return counts.stream()
+                .map(count -> new ViewStats(apps.get(count.appId()), uris.get(count.uriId()), count.hits()))
+                .toList();
+    }
+
+    private int intern(DictionaryKind kind, String value) {
+        Integer id = idsByValue.get(kind).get(value);
+        if (id == null) {
+            id = dictionaryRepository.intern(kind, value);
+            remember(kind, value, id);
+        }
+        return id;
+    }
+
+    private Map<Integer, String> resolve(DictionaryKind kind, Collection<Integer> ids) {
+        Map<Integer, String> cache = valuesById.get(kind);
+        List<Integer> missing = ids.stream()
+                .filter(id -> !cache.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            dictionaryRepository.findValues(kind, missing).forEach((id, value) -> remember(kind, value, id));
+        }
+        return cache;
+    }
+
+    private void remember(DictionaryKind kind, String value, int id) {
+        idsByValue.get(kind).put(value, id);
+        valuesById.get(kind).put(id, value);
+    }
+}
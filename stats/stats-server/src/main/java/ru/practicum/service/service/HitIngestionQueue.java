@@ -0,0 +1,171 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.practicum.service.exception.IngestionOverloadedException;
+import ru.practicum.service.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class HitIngestionQueue {
+
+    private static final long RETRY_BACKOFF_MS = 1000;
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+    private final HitStore hitStore;
+    private final boolean enabled;
+    private final BlockingQueue<EndpointHit> queue;
+    // Свободные места очереди: пакет резервирует их целиком до постановки в очередь
+    private final Semaphore capacity;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public HitIngestionQueue(HitStore hitStore,
+                             @Value("${stats.ingest.async:false}") boolean enabled,
+                             @Value("${stats.ingest.queue-capacity:50000}") int queueCapacity,
+                             @Value("${stats.ingest.batch-size:500}") int batchSize,
+                             @Value("${stats.ingest.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${stats.ingest.offer-timeout-ms:50}") long offerTimeoutMs,
+                             @Value("${stats.ingest.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.hitStore = hitStore;
+        this.enabled = enabled;
+        this.queue = new LinkedBlockingQueue<>();
+        this.capacity = new Semaphore(queueCapacity, true);
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "stats-hit-writer");
+        worker.start();
+        log.info("Асинхронная запись статистики включена: batchSize={}, flushIntervalMs={}, capacity={}",
+                batchSize, flushIntervalMs, queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    // Ожидание свободного места ограничено offerTimeoutMs — при переполнении клиент получает 503
+    public void submit(EndpointHit hit) {
+        submitAll(List.of(hit));
+    }
+
+    // Место резервируется сразу под весь пакет: при 503 в очередь не попадает ни один запрос,
+    // поэтому повтор пакета клиентом не приводит к двойной записи
+    public void submitAll(List<EndpointHit> hits) {
+        if (!running) {
+            throw new IngestionOverloadedException("Приём статистики остановлен");
+        }
+        if (hits.size() > queueCapacity) {
+            throw new IllegalArgumentException("Размер пакета не может превышать ёмкость очереди " + queueCapacity);
+        }
+        try {
+            if (!capacity.tryAcquire(hits.size(), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IngestionOverloadedException("Очередь записи статистики переполнена");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionOverloadedException("Приём статистики прерван");
+        }
+        queue.addAll(hits);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.error("Не удалось дождаться записи статистики, в очереди осталось {} запросов", queue.size());
+        }
+    }
+
+    private void runWorker() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (running || !queue.isEmpty()) {
+            long waitMs = Math.max(deadline - System.currentTimeMillis(), 1);
+            try {
+                EndpointHit hit = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (hit != null) {
+                    batch.add(hit);
+                    int drained = queue.drainTo(batch, batchSize - batch.size());
+                    capacity.release(1 + drained);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            if (batch.size() >= batchSize || System.currentTimeMillis() >= deadline) {
+                flush(batch);
+                deadline = System.currentTimeMillis() + flushIntervalMs;
+            }
+        }
+        flush(batch);
+        log.info("Асинхронная запись статистики остановлена");
+    }
+
+    // Пока база недоступна пакет не теряется: новые запросы копятся в очереди до её заполнения
+    private void flush(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                hitStore.write(batch);
+                batch.clear();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи пакета статистики ({} запросов), попытка {}: {}",
+                        batch.size(), attempt, e.getMessage());
+                if (!running && attempt >= SHUTDOWN_FLUSH_ATTEMPTS) {
+                    break;
+                }
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+            }
+        }
+        log.error("Потеряно {} запросов статистики при остановке", batch.size());
+        batch.clear();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.service.service;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Хранилище сырых запросов, выбирается параметром stats.store: jdbc (PostgreSQL, по умолчанию)
+// или segments (файлы сегментов на локальном диске, см. SegmentHitStore)
+public interface HitStore {
+
+    void write(List<EndpointHit> hits);
+
+    // Массовый импорт; по умолчанию — обычной записью
+    default void importHits(List<EndpointHit> hits) {
+        write(hits);
+    }
+
+    List<HitCount> getStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                            boolean unique, boolean exact);
+
+    // Ведутся ли агрегаты, скетчи и счётчики в PostgreSQL: на них держатся /stats/events,
+    // /stats/windows и /stats/stream
+    default boolean keepsAggregates() {
+        return true;
+    }
+}
@@ -0,0 +1,258 @@
+package ru.practicum.service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.IpAddresses;
+import ru.practicum.service.model.TransferStatus;
+import ru.practicum.service.repository.StatsStreamRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Выгрузка и загрузка сырых запросов в CSV: app,uri,ip,timestamp. В файле хранятся строки,
+// а не ключи словарей, поэтому его можно загрузить в другое окружение. Время выгружается
+// в ISO-8601 с долями секунды; загрузка принимает и прежний вид "yyyy-MM-dd HH:mm:ss".
+// Ход выполнения виден через getTransfers, пока идёт запрос
+@Service
+@Slf4j
+public class HitTransferService {
+
+    private static final String HEADER = "app,uri,ip,timestamp";
+    private static final int KEEP_FINISHED = 20;
+
+    private final StatsStreamRepository streamRepository;
+    private final HitStore hitStore;
+    private final HitDictionary dictionary;
+    private final int chunkSize;
+
+    private final Map<String, Progress> transfers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public HitTransferService(StatsStreamRepository streamRepository,
+                              HitStore hitStore,
+                              HitDictionary dictionary,
+                              @Value("${stats.transfer.chunk-size:10000}") int chunkSize) {
+        this.streamRepository = streamRepository;
+        this.hitStore = hitStore;
+        this.dictionary = dictionary;
+        this.chunkSize = chunkSize;
+    }
+
+    // Читается курсором в одной транзакции, которая держится всё время записи ответа
+    @Transactional(readOnly = true)
+    public void export(LocalDateTime start, LocalDateTime end, Writer writer) {
+        Progress progress = begin("EXPORT");
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            streamRepository.streamRawHits(start, end, (app, uri, ip, timestamp) -> {
+                try {
+                    writer.write(csv(app));
+                    writer.write(',');
+                    writer.write(csv(uri));
+                    writer.write(',');
+                    writer.write(IpAddresses.toString(ip));
+                    writer.write(',');
+                    writer.write(timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progress.advance(1);
+            });
+            writer.flush();
+            progress.finish(null);
+        } catch (IOException e) {
+            progress.finish(e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            progress.finish(e.getMessage());
+            throw e;
+        }
+    }
+
+    // Каждая порция из chunk-size строк записывается в своей транзакции: при ошибке в строке
+    // загруженные ранее порции остаются, в сообщении указан номер строки
+    public TransferStatus importHits(BufferedReader reader) {
+        Progress progress = begin("IMPORT");
+        long lineNumber = 1;
+        try {
+            String header = reader.readLine();
+            if (header == null || !HEADER.equalsIgnoreCase(header.trim())) {
+                throw new IllegalArgumentException("Ожидается заголовок " + HEADER);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<EndpointHit> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                long recordLine = lineNumber;
+                // Поле в кавычках с переносом строки продолжается на следующих строках файла
+                while (countQuotes(line) % 2 != 0) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    line = line + '\n' + next;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(parse(line, recordLine, now));
+                if (chunk.size() == chunkSize) {
+                    flush(chunk, progress);
+                }
+            }
+            flush(chunk, progress);
+            progress.finish(null);
+            return progress.toStatus();
+        } catch (IOException e) {
+            progress.finish(e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            progress.finish(e.getMessage());
+            throw e instanceof IllegalArgumentException
+                    ? new IllegalArgumentException(e.getMessage() + " (загружено строк: " + progress.rows + ")")
+                    : e;
+        }
+    }
+
+    public List<TransferStatus> getTransfers() {
+        return transfers.values().stream()
+                .map(Progress::toStatus)
+                .sorted(Comparator.comparing(TransferStatus::startedAt).reversed())
+                .toList();
+    }
+
+    private void flush(List<EndpointHit> chunk, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        hitStore.importHits(List.copyOf(chunk));
+        progress.advance(chunk.size());
+        chunk.clear();
+        log.info("Импорт {}: загружено {} строк", progress.id, progress.rows);
+    }
+
+    private EndpointHit parse(String line, long lineNumber, LocalDateTime now) {
+        List<String> fields = parseCsv(line, lineNumber);
+        if (fields.size() != 4 || fields.get(0).isBlank() || fields.get(1).isBlank()) {
+            throw new IllegalArgumentException("Строка " + lineNumber + ": ожидается " + HEADER);
+        }
+        try {
+            LocalDateTime timestamp = LocalDateTime.parse(fields.get(3).replace(' ', 'T'));
+            if (timestamp.isAfter(now)) {
+                throw new IllegalArgumentException("время запроса в будущем");
+            }
+            return EndpointHit.builder()
+                    .appId(dictionary.appId(fields.get(0)))
+                    .uriId(dictionary.uriId(fields.get(1)))
+                    .ip(IpAddresses.toBytes(fields.get(2)))
+                    .timestamp(timestamp)
+                    .build();
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Строка " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // Поля в кавычках — по правилам RFC 4180, в том числе с переносами строк внутри
+    private static List<String> parseCsv(String line, long lineNumber) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Строка " + lineNumber + ": незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static long countQuotes(String line) {
+        return line.chars().filter(c -> c == '"').count();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private Progress begin(String type) {
+        Progress progress = new Progress(type + "-" + sequence.incrementAndGet(), type);
+        transfers.put(progress.id, progress);
+
+        List<Progress> finished = transfers.values().stream()
+                .filter(p -> p.finishedAt != null)
+                .sorted(Comparator.comparing((Progress p) -> p.startedAt).reversed())
+                .toList();
+        finished.stream().skip(KEEP_FINISHED).forEach(p -> transfers.remove(p.id));
+        return progress;
+    }
+
+    private static class Progress {
+        private final String id;
+        private final String type;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile long rows;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Progress(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        // Счётчик меняет только поток, выполняющий перенос
+        void advance(int count) {
+            rows += count;
+        }
+
+        void finish(String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        TransferStatus toStatus() {
+            return new TransferStatus(id, type, rows, startedAt, finishedAt, error);
+        }
+    }
+}
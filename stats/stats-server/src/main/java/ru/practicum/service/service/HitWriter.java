@@ -0,0 +1,97 @@
+package ru.practicum.service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.RollupRepository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HitWriter {
+
+    private static final String INSERT_HIT =
+            "INSERT INTO endpoint_hits (app_id, uri_id, ip, hit_timestamp) VALUES (?, ?, ?, ?)";
+    private static final String COPY_HITS =
+            "COPY endpoint_hits (app_id, uri_id, ip, hit_timestamp) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RollupRepository rollupRepository;
+    private final List<HitBatchListener> listeners;
+
+    // Пакетная вставка без возврата сгенерированных ключей: при reWriteBatchedInserts=true
+    // драйвер PostgreSQL склеивает пакет в многострочный INSERT
+    @Transactional
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        rollupRepository.lockShared();
+        insert(hits);
+        listeners.forEach(listener -> listener.onHits(hits));
+        log.debug("Сохранено {} запросов к эндпоинтам", hits.size());
+    }
+
+    // Массовый импорт через COPY FROM STDIN; если соединение не PostgreSQL — пакетной вставкой
+    @Transactional
+    public void copy(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        rollupRepository.lockShared();
+        boolean copied = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return false;
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_HITS, new StringReader(toCsv(hits)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(copied)) {
+            log.warn("COPY недоступен, импорт пакетной вставкой");
+            insert(hits);
+        }
+        listeners.forEach(listener -> listener.onHits(hits));
+        log.debug("Импортировано {} запросов к эндпоинтам", hits.size());
+    }
+
+    private void insert(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setBytes(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+
+    // bytea в текстовом формате COPY — шестнадцатеричная строка с префиксом \x
+    private String toCsv(List<EndpointHit> hits) {
+        HexFormat hex = HexFormat.of();
+        StringBuilder csv = new StringBuilder(hits.size() * 64);
+        for (EndpointHit hit : hits) {
+            csv.append(hit.getAppId()).append(',')
+                    .append(hit.getUriId()).append(',')
+                    .append("\\x").append(hex.formatHex(hit.getIp())).append(',')
+                    .append(Timestamp.valueOf(hit.getTimestamp())).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "stats.store", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JdbcHitStore implements HitStore {
+
+    private final HitWriter hitWriter;
+    private final EndpointHitRepository repository;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final ViewCounterService viewCounterService;
+
+    @Override
+    public void write(List<EndpointHit> hits) {
+        hitWriter.write(hits);
+    }
+
+    @Override
+    public void importHits(List<EndpointHit> hits) {
+        hitWriter.copy(hits);
+    }
+
+    // unique без exact считается приближённо по HyperLogLog, exact=true — точный COUNT(DISTINCT ip)
+    @Override
+    public List<HitCount> getStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                   boolean unique, boolean exact) {
+        if (viewCounterService.covers(start, end, uriIds) && !(unique && exact)) {
+            return viewCounterService.getStats(uriIds, unique,
+                    missing -> query(start, end, missing, unique, exact));
+        }
+        return query(start, end, uriIds, unique, exact);
+    }
+
+    private List<HitCount> query(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                 boolean unique, boolean exact) {
+        if (unique) {
+            return exact || !sketchService.covers(start)
+                    ? repository.findStatsUnique(start, end, uriIds)
+                    : sketchService.getUniqueStats(start, end, uriIds);
+        } else {
+            return rollupService.getStats(start, end, uriIds);
+        }
+    }
+}
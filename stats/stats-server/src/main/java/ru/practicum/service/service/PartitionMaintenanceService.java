@@ -0,0 +1,164 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Ведение секций endpoint_hits по времени: заранее создаёт секции на premake интервалов вперёд
+// и удаляет целиком секции старше retention-days вместо построчного DELETE.
+// Строки, попавшие в секцию по умолчанию (исторические и задним числом), переносятся
+// в секции своих интервалов, а устаревшие из них удаляются
+@Service
+@Slf4j
+public class PartitionMaintenanceService {
+
+    private static final String PARENT = "endpoint_hits";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([0-9-]+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate moveTransaction;
+    private final boolean enabled;
+    private final ChronoUnit interval;
+    private final int premake;
+    private final int retentionDays;
+
+    private volatile boolean partitioned;
+
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${stats.partitions.enabled:true}") boolean enabled,
+                                       @Value("${stats.partitions.interval:MONTHS}") ChronoUnit interval,
+                                       @Value("${stats.partitions.premake:3}") int premake,
+                                       @Value("${stats.partitions.retention-days:0}") int retentionDays) {
+        if (interval != ChronoUnit.DAYS && interval != ChronoUnit.MONTHS) {
+            throw new IllegalArgumentException("Секции endpoint_hits поддерживаются только по DAYS или MONTHS");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.moveTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.interval = interval;
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, PARENT);
+        partitioned = "p".equals(kind);
+        if (!partitioned) {
+            log.warn("Таблица {} создана без секционирования, ведение секций отключено", PARENT);
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PARENT + "_default PARTITION OF " + PARENT + " DEFAULT");
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.partitions.check-interval-ms:3600000}",
+            initialDelayString = "${stats.partitions.check-interval-ms:3600000}")
+    public void maintain() {
+        if (!enabled || !partitioned) {
+            return;
+        }
+        if (retentionDays > 0) {
+            LocalDate threshold = LocalDate.now().minusDays(retentionDays);
+            dropExpired(threshold);
+            int deleted = jdbcTemplate.update("DELETE FROM " + PARENT + "_default WHERE hit_timestamp < ?",
+                    threshold.atStartOfDay());
+            if (deleted > 0) {
+                log.info("Из секции по умолчанию удалено {} запросов до {}", deleted, threshold);
+            }
+        }
+        // Сначала разбирается секция по умолчанию: пока в ней есть строки диапазона,
+        // секцию на этот диапазон создать нельзя
+        for (LocalDate from : findDefaultIntervals()) {
+            movePartition(from);
+        }
+        LocalDate current = floor(LocalDate.now());
+        for (int i = 0; i <= premake; i++) {
+            createPartition(current.plus(i, interval));
+        }
+    }
+
+    private List<LocalDate> findDefaultIntervals() {
+        String unit = interval == ChronoUnit.MONTHS ? "month" : "day";
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('" + unit + "', hit_timestamp)::date FROM " + PARENT + "_default " +
+                        "ORDER BY 1", LocalDate.class);
+    }
+
+    // Строки интервала переносятся из секции по умолчанию в отдельную таблицу, которая затем
+    // подключается секцией; всё в одной транзакции, поэтому при ошибке строки остаются на месте
+    private void movePartition(LocalDate from) {
+        LocalDate to = from.plus(1, interval);
+        String name = PARENT + "_p" + from.format(NAME_FORMAT);
+        try {
+            Integer moved = moveTransaction.execute(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT + " INCLUDING DEFAULTS)");
+                int count = jdbcTemplate.update("WITH moved AS (DELETE FROM " + PARENT + "_default " +
+                                "WHERE hit_timestamp >= ? AND hit_timestamp < ? RETURNING *) " +
+                                "INSERT INTO " + name + " SELECT * FROM moved",
+                        from.atStartOfDay(), to.atStartOfDay());
+                jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + name +
+                        " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                return count;
+            });
+            log.info("Создана секция {}, из секции по умолчанию перенесено {} запросов", name, moved);
+        } catch (RuntimeException e) {
+            // Например, если секция с таким именем уже есть или строки интервала дописываются прямо сейчас
+            log.error("Не удалось перенести строки в секцию {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void createPartition(LocalDate from) {
+        LocalDate to = from.plus(1, interval);
+        String name = PARENT + "_p" + from.format(NAME_FORMAT);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        } catch (RuntimeException e) {
+            // Например, если в секции по умолчанию уже есть строки из этого диапазона
+            log.error("Не удалось создать секцию {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void dropExpired(LocalDate threshold) {
+        List<String[]> partitions = jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)",
+                (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)}, PARENT);
+
+        for (String[] partition : partitions) {
+            Matcher matcher = UPPER_BOUND.matcher(partition[1]);
+            if (!matcher.find()) {
+                continue;
+            }
+            LocalDateTime upperBound = LocalDate.parse(matcher.group(1)).atStartOfDay();
+            if (!upperBound.isAfter(threshold.atStartOfDay())) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition[0]);
+                log.info("Удалена секция {} с данными до {}", partition[0], upperBound);
+            }
+        }
+    }
+
+    private LocalDate floor(LocalDate date) {
+        return interval == ChronoUnit.MONTHS ? date.withDayOfMonth(1) : date;
+    }
+}
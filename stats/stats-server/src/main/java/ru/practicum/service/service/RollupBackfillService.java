@@ -0,0 +1,157 @@
+package ru.practicum.service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.practicum.interactionapi.exception.ConflictException;
+import ru.practicum.interactionapi.exception.NotFoundException;
+import ru.practicum.service.model.BackfillState;
+import ru.practicum.service.model.BackfillStatus;
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.repository.BackfillRepository;
+import ru.practicum.service.repository.RollupRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Пересчёт агрегатов и скетчей по сырым запросам в фоне, по суткам. Следующие сутки с запросами
+// находятся keyset-переходом по индексу времени, каждые сутки пересчитываются и отмечаются
+// в rollup_backfill в одной транзакции, поэтому после перезапуска работа продолжается с того же места.
+// На время пересчёта суток запись новых запросов ждёт исключительной advisory-блокировки
+@Service
+@Slf4j
+public class RollupBackfillService {
+
+    private final BackfillRepository backfillRepository;
+    private final RollupRepository rollupRepository;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final StatsResultCache resultCache;
+    private final TransactionTemplate transactionTemplate;
+    private final long defaultThrottleMs;
+
+    private final Object lock = new Object();
+    private Thread worker;
+    private volatile boolean cancelled;
+
+    public RollupBackfillService(BackfillRepository backfillRepository,
+                                 RollupRepository rollupRepository,
+                                 RollupService rollupService,
+                                 SketchService sketchService,
+                                 StatsResultCache resultCache,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${stats.backfill.throttle-ms:100}") long defaultThrottleMs) {
+        this.backfillRepository = backfillRepository;
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.resultCache = resultCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultThrottleMs = defaultThrottleMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        backfillRepository.findState()
+                .filter(state -> state.status() == BackfillStatus.RUNNING)
+                .ifPresent(state -> {
+                    log.info("Продолжение пересчёта агрегатов с {}", state.nextFrom());
+                    synchronized (lock) {
+                        startWorker(state);
+                    }
+                });
+    }
+
+    // Границы расширяются до целых суток: сутки — единица пересчёта агрегатов всех гранулярностей
+    public BackfillState start(LocalDateTime from, LocalDateTime to, Long throttleMs) {
+        synchronized (lock) {
+            if (worker != null && worker.isAlive()) {
+                throw new ConflictException("Пересчёт агрегатов уже выполняется");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime rangeFrom = BucketGranularity.DAY.floor(from);
+            BackfillState state = new BackfillState(rangeFrom, BucketGranularity.DAY.ceil(to), rangeFrom,
+                    BackfillStatus.RUNNING, 0, throttleMs != null ? throttleMs : defaultThrottleMs, now, now, null);
+            backfillRepository.saveState(state);
+            startWorker(state);
+            return state;
+        }
+    }
+
+    public BackfillState cancel() {
+        synchronized (lock) {
+            if (worker == null || !worker.isAlive()) {
+                throw new ConflictException("Пересчёт агрегатов не выполняется");
+            }
+            cancelled = true;
+            worker.interrupt();
+        }
+        return getState();
+    }
+
+    public BackfillState getState() {
+        return backfillRepository.findState()
+                .orElseThrow(() -> new NotFoundException("Пересчёт агрегатов ещё не запускался"));
+    }
+
+    private void startWorker(BackfillState state) {
+        cancelled = false;
+        worker = new Thread(() -> run(state), "stats-rollup-backfill");
+        worker.start();
+    }
+
+    private void run(BackfillState initial) {
+        BackfillState state = initial;
+        try {
+            while (!cancelled) {
+                Optional<LocalDateTime> next = backfillRepository.findNextHit(state.nextFrom(), state.rangeTo());
+                if (next.isEmpty()) {
+                    complete(state);
+                    return;
+                }
+
+                LocalDateTime day = BucketGranularity.DAY.floor(next.get());
+                BackfillState advanced = state.advance(BucketGranularity.DAY.next(day));
+                transactionTemplate.executeWithoutResult(status -> {
+                    rollupRepository.lockExclusive();
+                    backfillRepository.recomputeRollups(new TimeRange(day, advanced.nextFrom()));
+                    sketchService.rebuildDay(day);
+                    backfillRepository.saveState(advanced);
+                });
+                state = advanced;
+                log.info("Агрегаты пересчитаны за {}", day.toLocalDate());
+
+                if (state.throttleMs() > 0) {
+                    Thread.sleep(state.throttleMs());
+                }
+            }
+            backfillRepository.saveState(state.finish(BackfillStatus.CANCELLED, null));
+        } catch (InterruptedException e) {
+            backfillRepository.saveState(state.finish(BackfillStatus.CANCELLED, null));
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Пересчёт агрегатов остановлен на {}: {}", state.nextFrom(), e.getMessage(), e);
+            backfillRepository.saveState(state.finish(BackfillStatus.FAILED, e.getMessage()));
+        }
+    }
+
+    // Если пересчитанный период смыкается с rollupFrom, агрегаты полны с его начала
+    private void complete(BackfillState state) {
+        rollupService.refreshRollupFrom();
+        LocalDateTime rollupFrom = rollupService.getRollupFrom();
+        if (state.rangeFrom().isBefore(rollupFrom) && !state.rangeTo().isBefore(rollupFrom)) {
+            rollupRepository.lowerRollupFrom(state.rangeFrom());
+            rollupService.refreshRollupFrom();
+            log.info("Агрегаты ведутся с {}", rollupService.getRollupFrom());
+        }
+        resultCache.invalidateAll();
+        backfillRepository.saveState(state.finish(BackfillStatus.COMPLETED, null));
+        log.info("Пересчёт агрегатов завершён: {} суток", state.chunks());
+    }
+}
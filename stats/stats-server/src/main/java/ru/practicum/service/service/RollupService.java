@@ -0,0 +1,110 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.model.WindowPlan;
+import ru.practicum.service.repository.EndpointHitRepository;
+import ru.practicum.service.repository.RollupRepository;
+import ru.practicum.service.repository.RollupRepository.RollupKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RollupService implements HitBatchListener {
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::appId)
+            .thenComparing(RollupKey::uriId);
+
+    public static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final RollupRepository rollupRepository;
+    private final EndpointHitRepository hitRepository;
+
+    private volatile LocalDateTime rollupFrom;
+
+    @PostConstruct
+    public void init() {
+        rollupFrom = rollupRepository.initRollupFrom(LocalDateTime.now(), ORIGIN);
+        log.info("Агрегаты статистики ведутся с {}", rollupFrom);
+    }
+
+    public LocalDateTime getRollupFrom() {
+        return rollupFrom;
+    }
+
+    public void refreshRollupFrom() {
+        rollupFrom = rollupRepository.findRollupFrom();
+    }
+
+    // Ключи упорядочены, чтобы параллельные пакеты блокировали строки агрегатов в одном порядке
+    @Override
+    public void onHits(List<EndpointHit> hits) {
+        Map<RollupKey, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (EndpointHit hit : hits) {
+            for (BucketGranularity granularity : BucketGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()),
+                        hit.getAppId(), hit.getUriId());
+                deltas.merge(key, 1L, Long::sum);
+            }
+        }
+        rollupRepository.increment(new ArrayList<>(deltas.entrySet()));
+    }
+
+    // Всё, что раньше rollupFrom, и края окна, не покрытые целыми бакетами, считаются по сырым данным
+    public List<HitCount> getStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        WindowPlan plan = plan(start, end);
+
+        Map<Long, HitCount> result = new HashMap<>();
+        for (TimeRange range : plan.rawRanges()) {
+            merge(result, hitRepository.countInRange(range.from(), range.to(), uriIds));
+        }
+        if (!plan.bucketRanges().isEmpty()) {
+            merge(result, rollupRepository.sumHits(plan.bucketRanges(), uriIds));
+        }
+
+        return result.values().stream()
+                .sorted(Comparator.comparing(HitCount::hits).reversed())
+                .toList();
+    }
+
+    // Окно [start, end] с учётом rollupFrom: всё до него считается по сырым данным
+    public WindowPlan plan(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime endExclusive = end.plusNanos(1000);
+        LocalDateTime covered = BucketGranularity.MINUTE.ceil(rollupFrom);
+        if (!start.isBefore(covered)) {
+            return WindowPlan.of(start, endExclusive);
+        }
+
+        LocalDateTime rawEnd = covered.isBefore(endExclusive) ? covered : endExclusive;
+        WindowPlan plan = WindowPlan.of(rawEnd, endExclusive);
+        List<TimeRange> rawRanges = new ArrayList<>();
+        rawRanges.add(new TimeRange(start, rawEnd));
+        rawRanges.addAll(plan.rawRanges());
+        return new WindowPlan(rawRanges, plan.bucketRanges());
+    }
+
+    private void merge(Map<Long, HitCount> result, List<HitCount> counts) {
+        for (HitCount count : counts) {
+            result.merge(count.key(), count,
+                    (a, b) -> new HitCount(a.appId(), a.uriId(), a.hits() + b.hits()));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.segment.Segment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+// Сырые запросы в файлах сегментов на локальном диске (один экземпляр stats-server).
+// Статистика всегда считается точно полным проходом по сегментам, пересекающим окно.
+// Агрегаты, скетчи и счётчики в PostgreSQL в этом режиме не ведутся, поэтому /stats/events,
+// /stats/windows и /stats/stream работают только с stats.store=jdbc и здесь отвечают 503
+@Service
+@ConditionalOnProperty(name = "stats.store", havingValue = "segments")
+@Slf4j
+public class SegmentHitStore implements HitStore {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final StatsResultCache resultCache;
+    private final TrendingService trendingService;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment active;
+    private long nextNumber = 1;
+
+    public SegmentHitStore(StatsResultCache resultCache,
+                           TrendingService trendingService,
+                           @Value("${stats.segments.dir:data/segments}") String directory,
+                           @Value("${stats.segments.records-per-segment:1048576}") int recordsPerSegment) {
+        this.resultCache = resultCache;
+        this.trendingService = trendingService;
+        this.directory = Paths.get(directory);
+        this.recordsPerSegment = recordsPerSegment;
+    }
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(this::isSegment).sorted().toList()) {
+                segments.add(Segment.open(path));
+                nextNumber = Math.max(nextNumber, number(path) + 1);
+            }
+        }
+        active = segments.isEmpty() || segments.get(segments.size() - 1).isFull()
+                ? createSegment()
+                : segments.get(segments.size() - 1);
+        log.info("Хранилище сегментов {}: {} сегментов, {} запросов", directory, segments.size(),
+                segments.stream().mapToLong(Segment::getCount).sum());
+    }
+
+    // Запись последовательная: новый сегмент заводится, когда текущий заполнен
+    @Override
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                for (EndpointHit hit : hits) {
+                    if (active.isFull()) {
+                        active.force();
+                        active = createSegment();
+                    }
+                    active.append(hit);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось создать сегмент статистики", e);
+            }
+        }
+        resultCache.onHits(hits);
+        trendingService.onHits(hits);
+    }
+
+    @Override
+    public List<HitCount> getStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                   boolean unique, boolean exact) {
+        BitSet filter = null;
+        if (uriIds != null) {
+            filter = new BitSet();
+            uriIds.forEach(filter::set);
+        }
+
+        Map<Long, long[]> hits = new HashMap<>();
+        Map<Long, Set<Ip>> visitors = new HashMap<>();
+        Segment.RecordConsumer consumer = unique
+                ? (appId, uriId, ipHigh, ipLow) -> visitors
+                        .computeIfAbsent(HitCount.key(appId, uriId), key -> new HashSet<>())
+                        .add(new Ip(ipHigh, ipLow))
+                : (appId, uriId, ipHigh, ipLow) -> hits
+                        .computeIfAbsent(HitCount.key(appId, uriId), key -> new long[1])[0]++;
+        long from = Segment.toMicros(start);
+        long to = Segment.toMicros(end);
+        for (Segment segment : segments) {
+            segment.scan(from, to, filter, consumer);
+        }
+
+        Stream<HitCount> counts = unique
+                ? visitors.entrySet().stream().map(entry -> count(entry.getKey(), entry.getValue().size()))
+                : hits.entrySet().stream().map(entry -> count(entry.getKey(), entry.getValue()[0]));
+        return counts.sorted(Comparator.comparing(HitCount::hits).reversed()).toList();
+    }
+
+    @Override
+    public boolean keepsAggregates() {
+        return false;
+    }
+
+    // Отображённые страницы сбрасываются на диск периодически: при сбое питания теряются
+    // записи за последний интервал, при падении процесса — нет
+    @Scheduled(fixedDelayString = "${stats.segments.sync-interval-ms:1000}")
+    public void sync() {
+        Segment current;
+        synchronized (this) {
+            current = active;
+        }
+        current.force();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.error("Не удалось закрыть сегмент {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%010d%s", PREFIX, nextNumber++, SUFFIX));
+        Segment segment = Segment.create(path, recordsPerSegment);
+        segments.add(segment);
+        log.info("Создан сегмент статистики {}", path);
+        return segment;
+    }
+
+    private boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private long number(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static HitCount count(long key, long hits) {
+        return new HitCount((int) (key >>> 32), (int) key, hits);
+    }
+
+    private record Ip(long high, long low) {
+    }
+}
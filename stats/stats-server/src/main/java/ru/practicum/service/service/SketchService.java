@@ -0,0 +1,105 @@
+package ru.practicum.service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.repository.SketchRepository;
+import ru.practicum.service.repository.SketchRepository.SketchKey;
+import ru.practicum.service.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Уникальные посещения по суточным HyperLogLog-скетчам (погрешность см. HyperLogLog.STANDARD_ERROR)
+@Service
+@RequiredArgsConstructor
+public class SketchService implements HitBatchListener {
+
+    private static final int MERGE_CHUNK = 1000;
+    private static final Comparator<SketchKey> KEY_ORDER = Comparator
+            .comparing(SketchKey::bucketStart)
+            .thenComparing(SketchKey::appId)
+            .thenComparing(SketchKey::uriId);
+
+    private final SketchRepository sketchRepository;
+    private final RollupService rollupService;
+
+    @Override
+    public void onHits(List<EndpointHit> hits) {
+        Map<SketchKey, HyperLogLog> deltas = new TreeMap<>(KEY_ORDER);
+        for (EndpointHit hit : hits) {
+            SketchKey key = new SketchKey(BucketGranularity.DAY.floor(hit.getTimestamp()),
+                    hit.getAppId(), hit.getUriId());
+            deltas.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+        }
+
+        List<Map.Entry<SketchKey, HyperLogLog>> entries = new ArrayList<>(deltas.entrySet());
+        for (int i = 0; i < entries.size(); i += MERGE_CHUNK) {
+            sketchRepository.merge(entries.subList(i, Math.min(i + MERGE_CHUNK, entries.size())));
+        }
+    }
+
+    // Скетчи ведутся с того же момента, что и агрегаты, поэтому окно до него считается точно
+    public boolean covers(LocalDateTime start) {
+        return !start.isBefore(BucketGranularity.MINUTE.ceil(rollupService.getRollupFrom()));
+    }
+
+    public List<HitCount> getUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        return collectSketches(start, end, uriIds).entrySet().stream()
+                .map(entry -> new HitCount((int) (entry.getKey() >>> 32), entry.getKey().intValue(),
+                        entry.getValue().estimate()))
+                .sorted(Comparator.comparing(HitCount::hits).reversed())
+                .toList();
+    }
+
+    public void rebuildDay(LocalDateTime day) {
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        collectRaw(new TimeRange(day, BucketGranularity.DAY.next(day)), null, sketches);
+        sketchRepository.replaceDay(day, sketches);
+    }
+
+    // Скетч на каждую пару (app, uri) по ключу HitCount.key: целые сутки после rollupFrom берутся
+    // из hit_sketches, остальная часть окна дочитывается IP из сырых запросов
+    public Map<Long, HyperLogLog> collectSketches(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        LocalDateTime endExclusive = end.plusNanos(1000);
+        LocalDateTime firstDay = BucketGranularity.DAY.ceil(start);
+        LocalDateTime coveredDay = BucketGranularity.DAY.ceil(rollupService.getRollupFrom());
+        if (firstDay.isBefore(coveredDay)) {
+            firstDay = coveredDay;
+        }
+        LocalDateTime lastDay = BucketGranularity.DAY.floor(endExclusive);
+
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+
+        if (firstDay.isBefore(lastDay)) {
+            sketchRepository.collect(new TimeRange(firstDay, lastDay), uriIds, (appId, uriId, sketch) ->
+                    sketchFor(sketches, appId, uriId).merge(sketch));
+            collectRaw(new TimeRange(start, firstDay), uriIds, sketches);
+            collectRaw(new TimeRange(lastDay, endExclusive), uriIds, sketches);
+        } else {
+            collectRaw(new TimeRange(start, endExclusive), uriIds, sketches);
+        }
+        return sketches;
+    }
+
+    private void collectRaw(TimeRange range, List<Integer> uriIds, Map<Long, HyperLogLog> sketches) {
+        if (range.isEmpty()) {
+            return;
+        }
+        sketchRepository.collectRawIps(range, uriIds, (appId, uriId, ip) ->
+                sketchFor(sketches, appId, uriId).add(ip));
+    }
+
+    private HyperLogLog sketchFor(Map<Long, HyperLogLog> sketches, int appId, int uriId) {
+        return sketches.computeIfAbsent(HitCount.key(appId, uriId), k -> new HyperLogLog());
+    }
+}
@@ -0,0 +1,229 @@
+package ru.practicum.service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Кэш результатов /stats с фильтром по uri: LRU с ограничением по числу записей и TTL.
+// Запись сбрасывается после фиксации пакета запросов, попадающих в её окно, по любому из её uri.
+// Окна, заканчивающиеся «сейчас», сводятся к одному ключу: пока по их uri нет новых запросов,
+// результат для любого такого конца окна одинаков. Закрытые окна кэшируются по точным границам
+@Service
+public class StatsResultCache implements HitBatchListener {
+
+    private static final int VERSION_STRIPES = 256;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Set<Key>> keysByUri = new HashMap<>();
+    // Версии меняются при сбросе: результат, посчитанный до сброса, в кэш уже не кладётся
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter evicted;
+    private final Counter invalidated;
+    private final Timer age;
+
+    public StatsResultCache(MeterRegistry meterRegistry,
+                            @Value("${stats.cache.enabled:true}") boolean enabled,
+                            @Value("${stats.cache.max-entries:10000}") int maxEntries,
+                            @Value("${stats.cache.ttl-ms:60000}") long ttlMs) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = Duration.ofMillis(ttlMs).toNanos();
+
+        this.hits = Counter.builder("stats.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("stats.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.expired = Counter.builder("stats.cache.removals").tag("cause", "expired").register(meterRegistry);
+        this.evicted = Counter.builder("stats.cache.removals").tag("cause", "size").register(meterRegistry);
+        this.invalidated = Counter.builder("stats.cache.removals").tag("cause", "invalidated")
+                .register(meterRegistry);
+        this.age = Timer.builder("stats.cache.age")
+                .description("Возраст записей кэша, отданных в ответ")
+                .register(meterRegistry);
+        Gauge.builder("stats.cache.size", this, StatsResultCache::size).register(meterRegistry);
+    }
+
+    // end == null — окно, открытое до текущего момента
+    public record Key(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique, boolean exact) {
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return !to.isBefore(start) && (end == null || !from.isAfter(end));
+        }
+    }
+
+    private record Entry(List<HitCount> counts, long createdAt) {
+    }
+
+    private record Span(LocalDateTime from, LocalDateTime to) {
+
+        Span include(LocalDateTime timestamp) {
+            return new Span(timestamp.isBefore(from) ? timestamp : from, timestamp.isAfter(to) ? timestamp : to);
+        }
+    }
+
+    // Без фильтра по uri результат не кэшируется: он велик и сбрасывался бы каждым запросом
+    public List<HitCount> get(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                              boolean unique, boolean exact, Supplier<List<HitCount>> loader) {
+        if (!enabled || uriIds == null) {
+            return loader.get();
+        }
+
+        boolean open = !end.isBefore(LocalDateTime.now().minusSeconds(1));
+        Key key = new Key(start, open ? null : end, uriIds.stream().sorted().distinct().toList(), unique, exact);
+        long version = version(key.uriIds());
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                long entryAge = System.nanoTime() - entry.createdAt();
+                if (entryAge <= ttlNanos) {
+                    hits.increment();
+                    age.record(entryAge, TimeUnit.NANOSECONDS);
+                    return entry.counts();
+                }
+                remove(key);
+                expired.increment();
+            }
+        }
+
+        misses.increment();
+        List<HitCount> counts = loader.get();
+
+        synchronized (this) {
+            if (version(key.uriIds()) == version) {
+                put(key, new Entry(counts, System.nanoTime()));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void onHits(List<EndpointHit> batch) {
+        if (!enabled) {
+            return;
+        }
+
+        Map<Integer, Span> touched = new HashMap<>();
+        for (EndpointHit hit : batch) {
+            touched.merge(hit.getUriId(), new Span(hit.getTimestamp(), hit.getTimestamp()),
+                    (span, ignored) -> span.include(hit.getTimestamp()));
+        }
+
+        // До фиксации новые запросы ещё не видны читающим, поэтому сбрасывать кэш раньше нельзя
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(touched);
+                }
+            });
+        } else {
+            invalidate(touched);
+        }
+    }
+
+    // После пересчёта агрегатов
+    public void invalidateAll() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        synchronized (this) {
+            invalidated.increment(entries.size());
+            entries.clear();
+            keysByUri.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void invalidate(Map<Integer, Span> touched) {
+        touched.keySet().forEach(uriId -> versions.incrementAndGet(stripe(uriId)));
+
+        synchronized (this) {
+            touched.forEach((uriId, span) -> {
+                Set<Key> keys = keysByUri.get(uriId);
+                if (keys == null) {
+                    return;
+                }
+                for (Key key : List.copyOf(keys)) {
+                    if (key.overlaps(span.from(), span.to())) {
+                        remove(key);
+                        invalidated.increment();
+                    }
+                }
+            });
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entries.put(key, entry) == null) {
+            key.uriIds().forEach(uriId -> keysByUri.computeIfAbsent(uriId, id -> new HashSet<>()).add(key));
+        }
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            Key evictedKey = eldest.next();
+            eldest.remove();
+            unindex(evictedKey);
+            evicted.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        if (entries.remove(key) != null) {
+            unindex(key);
+        }
+    }
+
+    private void unindex(Key key) {
+        for (Integer uriId : key.uriIds()) {
+            Set<Key> keys = keysByUri.get(uriId);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByUri.remove(uriId);
+                }
+            }
+        }
+    }
+
+    private long version(List<Integer> uriIds) {
+        long sum = 0;
+        for (Integer uriId : uriIds) {
+            sum += versions.get(stripe(uriId));
+        }
+        return sum;
+    }
+
+    private static int stripe(int uriId) {
+        return Math.floorMod(uriId, VERSION_STRIPES);
+    }
+}
@@ -1,44 +1,207 @@
 package ru.practicum.service.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import ru.practicum.interactionapi.dto.stats.EndpointHitDto;
+import ru.practicum.interactionapi.dto.stats.EventViewsDto;
 import ru.practicum.interactionapi.dto.stats.ViewStats;
+import ru.practicum.interactionapi.dto.stats.WindowViewStats;
+import ru.practicum.service.exception.FeatureUnavailableException;
 import ru.practicum.service.model.EndpointHit;
-import ru.practicum.service.repository.EndpointHitRepository;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.IpAddresses;
+import ru.practicum.service.model.UriViews;
+import ru.practicum.service.repository.StatsStreamRepository;
+import ru.practicum.service.sketch.HyperLogLog;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class StatsService {
 
-    private final EndpointHitRepository repository;
+    private final StatsStreamRepository streamRepository;
+    private final HitStore hitStore;
+    private final HitIngestionQueue ingestionQueue;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final ViewCounterService viewCounterService;
+    private final TrendingService trendingService;
+    private final WindowCounterService windowCounterService;
+    private final StatsResultCache resultCache;
+    private final HitDictionary dictionary;
+    private final int maxBatchSize;
 
-    @Transactional
+    public StatsService(StatsStreamRepository streamRepository,
+                        HitStore hitStore,
+                        HitIngestionQueue ingestionQueue,
+                        RollupService rollupService,
+                        SketchService sketchService,
+                        ViewCounterService viewCounterService,
+                        TrendingService trendingService,
+                        WindowCounterService windowCounterService,
+                        StatsResultCache resultCache,
+                        HitDictionary dictionary,
+                        @Value("${stats.ingest.max-batch-size:10000}") int maxBatchSize) {
+        this.streamRepository = streamRepository;
+        this.hitStore = hitStore;
+        this.ingestionQueue = ingestionQueue;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.viewCounterService = viewCounterService;
+        this.trendingService = trendingService;
+        this.windowCounterService = windowCounterService;
+        this.resultCache = resultCache;
+        this.dictionary = dictionary;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Транзакцию открывает HitWriter (stats.store=jdbc): в асинхронном режиме запрос только ставится в очередь
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void saveHit(EndpointHitDto dto) {
+        EndpointHit hit = toHit(dto, LocalDateTime.now());
 
-        if (dto.getTimestamp().isAfter(LocalDateTime.now())) {
-            throw new IllegalArgumentException("Время запроса не может быть в будущем");
+        if (ingestionQueue.isEnabled()) {
+            ingestionQueue.submit(hit);
+        } else {
+            hitStore.write(List.of(hit));
         }
+    }
 
-        EndpointHit hit = EndpointHit.builder()
-                .app(dto.getApp())
-                .uri(dto.getUri())
-                .ip(dto.getIp())
-                .timestamp(dto.getTimestamp())
-                .build();
-        repository.save(hit);
+    // Пакет проверяется целиком до записи: либо принимаются все запросы, либо ни одного
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void saveHits(List<EndpointHitDto> dtos) {
+        if (dtos.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Размер пакета не может превышать " + maxBatchSize);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHit> hits = dtos.stream()
+                .map(dto -> toHit(dto, now))
+                .toList();
+
+        if (ingestionQueue.isEnabled()) {
+            ingestionQueue.submitAll(hits);
+        } else {
+            hitStore.write(hits);
+        }
     }
 
-    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                    boolean unique, boolean exact) {
+        List<Integer> uriIds = uris == null || uris.isEmpty() ? null : dictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<HitCount> counts = resultCache.get(start, end, uriIds, unique, exact,
+                () -> hitStore.getStats(start, end, uriIds, unique, exact));
+        return dictionary.toViewStats(counts);
+    }
+
+    // Неизвестные uri в ответ не попадают
+    public List<WindowViewStats> getWindowStats(List<String> uris) {
+        requireAggregates();
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, String> names = dictionary.uris(uriIds);
+        return windowCounterService.getCounts(uriIds).stream()
+                .map(counts -> new WindowViewStats(names.get(counts.uriId()), counts.lastHour(),
+                        counts.lastDay(), counts.lastWeek()))
+                .toList();
+    }
+
+    public List<ViewStats> getTopStats(Duration window, int k) {
+        return dictionary.toViewStats(trendingService.getTop(window, k));
+    }
+
+    // Курсор открыт, пока идёт запись ответа, поэтому транзакция держится на всё это время.
+    // unique считается в БД точно: скетчи пришлось бы сливать в памяти по всем uri сразу
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            Integer limit, Consumer<ViewStats> consumer) {
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = dictionary.findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+        }
+
         if (unique) {
-            return repository.findStatsUnique(start, end, uris == null || uris.isEmpty() ? null : uris);
+            streamRepository.streamUniqueHits(start, end, uriIds, limit, consumer);
+        } else {
+            streamRepository.streamHits(rollupService.plan(start, end), uriIds, limit, consumer);
+        }
+    }
+
+    public List<EventViewsDto> getEventViews(List<Long> eventIds) {
+        requireAggregates();
+        Map<Long, Integer> uriIds = dictionary.findEventUriIds(eventIds);
+        if (uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> ids = List.copyOf(uriIds.values());
+        Map<Integer, UriViews> views = (viewCounterService.isEnabled()
+                ? viewCounterService.getViews(ids, this::collectViews)
+                : collectViews(ids)).stream()
+                .collect(Collectors.toMap(UriViews::uriId, Function.identity()));
+
+        return uriIds.entrySet().stream()
+                .map(entry -> {
+                    UriViews uriViews = views.get(entry.getValue());
+                    return new EventViewsDto(entry.getKey(), uriViews.hits(), uriViews.uniqueHits());
+                })
+                .toList();
+    }
+
+    // С stats.store=segments агрегаты не ведутся и ответ был бы молча пустым
+    public void requireAggregates() {
+        if (!hitStore.keepsAggregates()) {
+            throw new FeatureUnavailableException(
+                    "Запрос работает только с хранилищем stats.store=jdbc, а выбрано хранилище сегментов");
+        }
+    }
+
+    // Без счётчиков в памяти: суммы из агрегатов, уникальные — по объединённым скетчам
+    private List<UriViews> collectViews(List<Integer> uriIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, Long> hits = new HashMap<>();
+        for (HitCount count : rollupService.getStats(RollupService.ORIGIN, now, uriIds)) {
+            hits.merge(count.uriId(), count.hits(), Long::sum);
+        }
+        Map<Integer, HyperLogLog> visitors = new HashMap<>();
+        sketchService.collectSketches(RollupService.ORIGIN, now, uriIds).forEach((key, sketch) ->
+                visitors.computeIfAbsent(key.intValue(), uriId -> new HyperLogLog()).merge(sketch));
+
+        return uriIds.stream()
+                .map(uriId -> new UriViews(uriId, hits.getOrDefault(uriId, 0L),
+                        visitors.containsKey(uriId) ? visitors.get(uriId).estimate() : 0L))
+                .toList();
+    }
+
+    private EndpointHit toHit(EndpointHitDto dto, LocalDateTime now) {
+        if (dto.getTimestamp().isAfter(now)) {
+            throw new IllegalArgumentException("Время запроса не может быть в будущем");
         }
-        return repository.findStats(start, end, uris == null || uris.isEmpty() ? null : uris);
+
+        return EndpointHit.builder()
+                .appId(dictionary.appId(dto.getApp()))
+                .uriId(dictionary.uriId(dto.getUri()))
+                .ip(IpAddresses.toBytes(dto.getIp()))
+                .timestamp(dto.getTimestamp())
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package ru.practicum.service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ru.practicum.service.exception.FeatureUnavailableException;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.sketch.SpaceSaving;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Самые посещаемые пары app/uri за последние минуты: по сводке Space-Saving на каждую минуту
+// в кольцевом буфере. Для окна сводки минут складываются, поэтому значения приближённые сверху.
+// Учитываются только запросы, прошедшие через этот экземпляр stats-server
+@Service
+public class TrendingService implements HitBatchListener {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final Slice[] slices;
+    private final BatchSequence batches = new BatchSequence();
+
+    public TrendingService(@Value("${stats.top.enabled:true}") boolean enabled,
+                           @Value("${stats.top.max-window-minutes:60}") int maxWindowMinutes,
+                           @Value("${stats.top.capacity:1000}") int capacity) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.slices = new Slice[maxWindowMinutes];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice(capacity);
+        }
+    }
+
+    @Override
+    public void onHits(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+
+        Map<Long, Map<Long, Long>> deltas = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            deltas.computeIfAbsent(epochMinute(hit.getTimestamp()), minute -> new HashMap<>())
+                    .merge(HitCount.key(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+        }
+        // При откате транзакции записи пакет не должен попасть в сводки
+        batches.afterCommit(batch -> apply(deltas));
+    }
+
+    private void apply(Map<Long, Map<Long, Long>> deltas) {
+        long oldest = epochMinute(LocalDateTime.now()) - slices.length + 1;
+        deltas.forEach((minute, counts) -> {
+            if (minute < oldest) {
+                return;
+            }
+            Slice slice = slices[(int) (minute % slices.length)];
+            synchronized (slice) {
+                if (slice.minute > minute) {
+                    return;
+                }
+                if (slice.minute < minute) {
+                    slice.minute = minute;
+                    slice.summary.clear();
+                }
+                counts.forEach(slice.summary::add);
+            }
+        });
+    }
+
+    // Окно округляется вверх до целых минут и включает текущую неполную минуту
+    public List<HitCount> getTop(Duration window, int k) {
+        if (!enabled) {
+            throw new FeatureUnavailableException("Подсчёт популярных uri отключён (stats.top.enabled=false)");
+        }
+        long minutes = (window.toSeconds() + 59) / 60;
+        if (minutes <= 0 || minutes > slices.length) {
+            throw new IllegalArgumentException("Окно должно быть от 1 минуты до " + slices.length + " минут");
+        }
+        if (k > capacity) {
+            throw new IllegalArgumentException("k не может превышать " + capacity);
+        }
+
+        long now = epochMinute(LocalDateTime.now());
+        Map<Long, Long> counts = new HashMap<>();
+        for (long minute = now - minutes + 1; minute <= now; minute++) {
+            Slice slice = slices[(int) (minute % slices.length)];
+            synchronized (slice) {
+                if (slice.minute == minute) {
+                    for (SpaceSaving.Estimate estimate : slice.summary.estimates()) {
+                        counts.merge(estimate.key(), estimate.count(), Long::sum);
+                    }
+                }
+            }
+        }
+
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(k)
+                .map(entry -> new HitCount((int) (entry.getKey() >>> 32), entry.getKey().intValue(),
+                        entry.getValue()))
+                .toList();
+    }
+
+    private static long epochMinute(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static class Slice {
+        private long minute = Long.MIN_VALUE;
+        private final SpaceSaving summary;
+
+        Slice(int capacity) {
+            this.summary = new SpaceSaving(capacity);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.HitCount;
+import ru.practicum.service.model.UriViews;
+import ru.practicum.service.repository.RollupRepository;
+import ru.practicum.service.repository.ViewCounterRepository;
+import ru.practicum.service.repository.ViewCounterRepository.CounterRow;
+import ru.practicum.service.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+// Счётчики просмотров «за всё время» по uri в памяти с периодическим сбросом в view_counters.
+// Пакет запросов попадает в счётчики только после фиксации транзакции записи. Счётчик заводится
+// в фоне при первом запросе или чтении uri: из view_counters или, если строки нет, из агрегатов;
+// пока он не заведён, чтение считается по агрегатам.
+// Рассчитан на один экземпляр stats-server: сброс перезаписывает скетч в строке целиком,
+// поэтому по умолчанию выключен (stats.counters.enabled)
+@Service
+@Slf4j
+public class ViewCounterService implements HitBatchListener {
+
+    private final ViewCounterRepository counterRepository;
+    private final RollupRepository rollupRepository;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate seedTransaction;
+    private final boolean enabled;
+    private final int maxUris;
+
+    private final Map<Integer, UriCounters> counters = new ConcurrentHashMap<>();
+    private final BatchSequence batches = new BatchSequence();
+    private final Set<Integer> seedQueue = ConcurrentHashMap.newKeySet();
+    private final ExecutorService seeder =
+            Executors.newSingleThreadExecutor(task -> new Thread(task, "stats-counter-seed"));
+
+    public ViewCounterService(ViewCounterRepository counterRepository,
+                              RollupRepository rollupRepository,
+                              RollupService rollupService,
+                              SketchService sketchService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stats.counters.enabled:false}") boolean enabled,
+                              @Value("${stats.counters.max-uris:20000}") int maxUris) {
+        this.counterRepository = counterRepository;
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // Вся история читается из одного снимка, взятого в snapshotHits
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+        this.maxUris = maxUris;
+    }
+
+    // Пока счётчики выключены, запросы в view_counters не попадают: при включении строки
+    // отставали бы, поэтому они удаляются и счётчики заново заводятся из агрегатов
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            counterRepository.deleteAll();
+        }
+    }
+
+    // Окно «за всё время»: начало не позже ORIGIN, конец внутри текущей минуты или позже. Конец
+    // запроса — момент на стороне клиента, поэтому он отстаёт на задержку сети и расхождение часов;
+    // запросы с отметкой после end, но в той же минуте, счётчик тоже учитывает
+    public boolean covers(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        return enabled && uriIds != null
+                && !start.isAfter(RollupService.ORIGIN)
+                && !end.isBefore(BucketGranularity.MINUTE.floor(LocalDateTime.now()));
+    }
+
+    @Override
+    public void onHits(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        Map<Integer, List<EndpointHit>> byUri = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            byUri.computeIfAbsent(hit.getUriId(), uriId -> new ArrayList<>()).add(hit);
+        }
+        // При откате транзакции записи пакет не должен попасть в счётчики
+        batches.afterCommit(batch -> apply(batch, byUri));
+    }
+
+    // uri без заведённого счётчика считаются через fallback
+    public List<HitCount> getStats(List<Integer> uriIds, boolean unique,
+                                   Function<List<Integer>, List<HitCount>> fallback) {
+        List<HitCount> result = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer uriId : uriIds) {
+            UriCounters uri = acquire(uriId);
+            synchronized (uri) {
+                if (!uri.isLoaded()) {
+                    missing.add(uriId);
+                    continue;
+                }
+                uri.lastAccess = System.nanoTime();
+                uri.apps.forEach((appId, counter) -> {
+                    long hits = unique ? counter.sketch.estimate() : counter.total;
+                    if (hits > 0) {
+                        result.add(new HitCount(appId, uriId, hits));
+                    }
+                });
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.addAll(fallback.apply(missing));
+        }
+        result.sort(Comparator.comparing(HitCount::hits).reversed());
+        return result;
+    }
+
+    // Уникальные посетители считаются по объединённому скетчу всех сервисов
+    public List<UriViews> getViews(List<Integer> uriIds, Function<List<Integer>, List<UriViews>> fallback) {
+        List<UriViews> result = new ArrayList<>(uriIds.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer uriId : uriIds) {
+            UriCounters uri = acquire(uriId);
+            synchronized (uri) {
+                if (!uri.isLoaded()) {
+                    missing.add(uriId);
+                    continue;
+                }
+                uri.lastAccess = System.nanoTime();
+                long hits = 0;
+                HyperLogLog visitors = new HyperLogLog();
+                for (AppCounter counter : uri.apps.values()) {
+                    hits += counter.total;
+                    visitors.merge(counter.sketch);
+                }
+                result.add(new UriViews(uriId, hits, visitors.estimate()));
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.addAll(fallback.apply(missing));
+        }
+        return result;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.counters.flush-interval-ms:5000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Snapshot> snapshots = new ArrayList<>();
+        counters.forEach((uriId, uri) -> {
+            synchronized (uri) {
+                uri.apps.forEach((appId, counter) -> {
+                    if (counter.dirty) {
+                        snapshots.add(new Snapshot(uri, counter,
+                                new CounterRow(appId, uriId, counter.pending, counter.sketch.copy())));
+                        counter.pending = 0;
+                        counter.dirty = false;
+                    }
+                });
+            }
+        });
+
+        if (!snapshots.isEmpty()) {
+            try {
+                transaction.executeWithoutResult(status ->
+                        counterRepository.save(snapshots.stream().map(Snapshot::row).toList()));
+            } catch (RuntimeException e) {
+                log.error("Не удалось сохранить {} счётчиков просмотров: {}", snapshots.size(), e.getMessage());
+                for (Snapshot snapshot : snapshots) {
+                    synchronized (snapshot.uri()) {
+                        snapshot.counter().pending += snapshot.row().hits();
+                        snapshot.counter().dirty = true;
+                    }
+                }
+                return;
+            }
+        }
+        // Счётчики, которые не удалось завести, пробуются снова
+        if (!seedQueue.isEmpty()) {
+            scheduleSeed();
+        }
+        evict();
+    }
+
+    @PreDestroy
+    public void stop() {
+        seeder.shutdownNow();
+        flush();
+    }
+
+    private void apply(long batch, Map<Integer, List<EndpointHit>> byUri) {
+        byUri.forEach((uriId, hits) -> {
+            while (true) {
+                UriCounters uri = acquire(uriId);
+                synchronized (uri) {
+                    if (uri.retired) {
+                        continue;
+                    }
+                    if (!uri.isLoaded()) {
+                        uri.early.add(new Batch(batch, hits));
+                    } else if (batch > uri.seededBatch) {
+                        uri.add(hits);
+                    }
+                    return;
+                }
+            }
+        });
+    }
+
+    // Заготовка публикуется сразу, а начальное значение читается в фоне: вне транзакции записи
+    // и вне ConcurrentHashMap.computeIfAbsent
+    private UriCounters acquire(Integer uriId) {
+        UriCounters uri = counters.get(uriId);
+        if (uri != null) {
+            return uri;
+        }
+        UriCounters created = new UriCounters();
+        uri = counters.putIfAbsent(uriId, created);
+        if (uri != null) {
+            return uri;
+        }
+        seedQueue.add(uriId);
+        scheduleSeed();
+        return created;
+    }
+
+    private void scheduleSeed() {
+        try {
+            seeder.execute(this::seedPending);
+        } catch (RejectedExecutionException e) {
+            log.debug("Сервис останавливается, счётчики просмотров не заводятся");
+        }
+    }
+
+    private void seedPending() {
+        List<Integer> uriIds = new ArrayList<>(seedQueue);
+        if (uriIds.isEmpty()) {
+            return;
+        }
+        uriIds.forEach(seedQueue::remove);
+
+        Map<Integer, UriCounters> seeds;
+        try {
+            seeds = seedTransaction.execute(status -> load(uriIds));
+        } catch (RuntimeException e) {
+            log.error("Не удалось завести {} счётчиков просмотров: {}", uriIds.size(), e.getMessage());
+            seedQueue.addAll(uriIds);
+            return;
+        }
+        seeds.forEach(this::publish);
+    }
+
+    private Map<Integer, UriCounters> load(List<Integer> uriIds) {
+        // Запись останавливается только на время снимка: история читается уже без блокировки,
+        // а пакеты после batch копятся в заготовке и добавляются при публикации
+        long batch = rollupRepository.snapshotHits(batches::awaitCurrent);
+
+        Map<Integer, UriCounters> seeds = new HashMap<>();
+        for (CounterRow row : counterRepository.findByUris(uriIds)) {
+            seeds.computeIfAbsent(row.uriId(), uriId -> new UriCounters())
+                    .apps.put(row.appId(), new AppCounter(row.hits(), row.sketch(), false));
+        }
+        // В строках view_counters — ровно то, что попало в прежний счётчик uri до его вытеснения;
+        // все пакеты после этого копились в заготовке, поэтому seededBatch остаётся нулевым.
+        // Опоздавших пакетов прежнего счётчика нет: он заводился тоже после awaitCompleted
+
+        List<Integer> fresh = uriIds.stream().filter(uriId -> !seeds.containsKey(uriId)).toList();
+        if (fresh.isEmpty()) {
+            return seeds;
+        }
+        // Строки ещё нет: берём значение из агрегатов и при первом сбросе сохраняем его целиком
+        LocalDateTime now = LocalDateTime.now();
+        fresh.forEach(uriId -> {
+            UriCounters seed = new UriCounters();
+            seed.seededBatch = batch;
+            seeds.put(uriId, seed);
+        });
+        Map<Long, HyperLogLog> sketches = sketchService.collectSketches(RollupService.ORIGIN, now, fresh);
+        for (HitCount count : rollupService.getStats(RollupService.ORIGIN, now, fresh)) {
+            HyperLogLog sketch = sketches.getOrDefault(count.key(), new HyperLogLog());
+            seeds.get(count.uriId()).apps.put(count.appId(), new AppCounter(count.hits(), sketch, true));
+        }
+        return seeds;
+    }
+
+    private void publish(Integer uriId, UriCounters seed) {
+        UriCounters uri = counters.get(uriId);
+        if (uri == null) {
+            return;
+        }
+        synchronized (uri) {
+            if (uri.isLoaded()) {
+                return;
+            }
+            uri.apps.putAll(seed.apps);
+            uri.seededBatch = seed.seededBatch;
+            for (Batch batch : uri.early) {
+                if (batch.number() > uri.seededBatch) {
+                    uri.add(batch.hits());
+                }
+            }
+            uri.early = null;
+        }
+    }
+
+    // Вытесняются только давно не читавшиеся, заведённые и уже сохранённые счётчики
+    private void evict() {
+        int excess = counters.size() - maxUris;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<Integer, UriCounters>> oldest = new ArrayList<>(counters.entrySet());
+        oldest.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<Integer, UriCounters> entry : oldest.subList(0, excess)) {
+            UriCounters uri = entry.getValue();
+            synchronized (uri) {
+                if (uri.isLoaded() && uri.apps.values().stream().noneMatch(counter -> counter.dirty)) {
+                    uri.retired = true;
+                    counters.remove(entry.getKey(), uri);
+                }
+            }
+        }
+    }
+
+    // early — пакеты, зафиксированные, пока счётчик заводится; после заведения null
+    private static class UriCounters {
+        private final Map<Integer, AppCounter> apps = new HashMap<>();
+        private List<Batch> early = new ArrayList<>();
+        private long seededBatch;
+        private volatile long lastAccess = System.nanoTime();
+        private boolean retired;
+
+        boolean isLoaded() {
+            return early == null;
+        }
+
+        void add(List<EndpointHit> hits) {
+            for (EndpointHit hit : hits) {
+                AppCounter counter = apps.computeIfAbsent(hit.getAppId(), appId -> new AppCounter());
+                counter.total++;
+                counter.pending++;
+                counter.sketch.add(hit.getIp());
+                counter.dirty = true;
+            }
+        }
+    }
+
+    private static class AppCounter {
+        private long total;
+        private long pending;
+        private final HyperLogLog sketch;
+        private boolean dirty;
+
+        AppCounter() {
+            this.sketch = new HyperLogLog();
+        }
+
+        AppCounter(long total, HyperLogLog sketch, boolean dirty) {
+            this.total = total;
+            this.pending = dirty ? total : 0;
+            this.sketch = sketch;
+            this.dirty = dirty;
+        }
+    }
+
+    private record Batch(long number, List<EndpointHit> hits) {
+    }
+
+    private record Snapshot(UriCounters uri, AppCounter counter, CounterRow row) {
+    }
+}
@@ -0,0 +1,363 @@
+package ru.practicum.service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.practicum.service.model.BucketGranularity;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.TimeRange;
+import ru.practicum.service.repository.RollupRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Просмотры uri за последние час, сутки и неделю по кольцевым буферам: 60 минутных и 168 часовых
+// бакетов. При сдвиге времени буфер прокручивается, обнуляя только вышедшие из окна бакеты.
+// Окна выровнены по бакетам: «час» — текущая минута и 59 предыдущих, «сутки» и «неделя» — по часам.
+// Буфер заводится в фоне при первом чтении uri из агрегатов (до rollupFrom — из сырых запросов);
+// пока он не заведён, окна считаются по агрегатам. Пакет попадает в буферы после фиксации записи
+@Service
+@Slf4j
+public class WindowCounterService implements HitBatchListener {
+
+    private static final int MINUTES = 60;
+    private static final int HOURS_IN_DAY = 24;
+    private static final int HOURS = 7 * 24;
+
+    private final RollupRepository rollupRepository;
+    private final RollupService rollupService;
+    private final TransactionTemplate seedTransaction;
+    private final boolean enabled;
+    private final int maxUris;
+
+    private final Map<Integer, UriWindows> windows = new ConcurrentHashMap<>();
+    private final BatchSequence batches = new BatchSequence();
+    private final Set<Integer> seedQueue = ConcurrentHashMap.newKeySet();
+    private final ExecutorService seeder =
+            Executors.newSingleThreadExecutor(task -> new Thread(task, "stats-window-seed"));
+
+    public WindowCounterService(RollupRepository rollupRepository,
+                                RollupService rollupService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${stats.windows.enabled:true}") boolean enabled,
+                                @Value("${stats.windows.max-uris:20000}") int maxUris) {
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.enabled = enabled;
+        this.maxUris = maxUris;
+        // Буферы заводятся из одного снимка, взятого в snapshotHits
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public record WindowCounts(int uriId, long lastHour, long lastDay, long lastWeek) {
+    }
+
+    @Override
+    public void onHits(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        Map<Integer, List<EndpointHit>> byUri = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            byUri.computeIfAbsent(hit.getUriId(), uriId -> new ArrayList<>()).add(hit);
+        }
+        batches.afterCommit(batch -> apply(batch, byUri));
+    }
+
+    // Без буферов в памяти (stats.windows.enabled=false) окна каждый раз считаются по агрегатам
+    // в транзакции вызывающего; так же считаются uri, буфер которых ещё заводится
+    public List<WindowCounts> getCounts(List<Integer> uriIds) {
+        long now = epochMinute(LocalDateTime.now());
+        Map<Integer, UriWindows> found = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer uriId : uriIds) {
+            UriWindows uri = enabled ? acquire(uriId, now) : null;
+            if (uri != null && uri.isLoaded()) {
+                found.put(uriId, uri);
+            } else {
+                missing.add(uriId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            found.putAll(load(missing, now));
+        }
+
+        List<WindowCounts> result = new ArrayList<>(uriIds.size());
+        for (Integer uriId : uriIds) {
+            UriWindows uri = found.get(uriId);
+            synchronized (uri) {
+                uri.lastAccess = System.nanoTime();
+                uri.advance(now);
+                result.add(new WindowCounts(uriId, uri.sumMinutes(), uri.sumHours(HOURS_IN_DAY),
+                        uri.sumHours(HOURS)));
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.windows.evict-interval-ms:60000}")
+    public void evict() {
+        int excess = windows.size() - maxUris;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<Integer, UriWindows>> oldest = new ArrayList<>(windows.entrySet());
+        oldest.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<Integer, UriWindows> entry : oldest.subList(0, excess)) {
+            UriWindows uri = entry.getValue();
+            synchronized (uri) {
+                if (uri.isLoaded()) {
+                    uri.retired = true;
+                    windows.remove(entry.getKey(), uri);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        seeder.shutdownNow();
+    }
+
+    // Пакеты по uri без буфера пропускаются: буфер потом заведётся из агрегатов, где они уже есть
+    private void apply(long batch, Map<Integer, List<EndpointHit>> byUri) {
+        long now = epochMinute(LocalDateTime.now());
+        byUri.forEach((uriId, hits) -> {
+            UriWindows uri = windows.get(uriId);
+            while (uri != null) {
+                synchronized (uri) {
+                    if (!uri.retired) {
+                        if (!uri.isLoaded()) {
+                            uri.early.add(new Batch(batch, hits));
+                        } else if (batch > uri.seededBatch) {
+                            uri.add(hits, now);
+                        }
+                        return;
+                    }
+                }
+                uri = windows.get(uriId);
+            }
+        });
+    }
+
+    // Заготовка публикуется сразу, а буфер заполняется в фоне: вне ConcurrentHashMap.computeIfAbsent
+    private UriWindows acquire(Integer uriId, long now) {
+        UriWindows uri = windows.get(uriId);
+        if (uri != null) {
+            return uri;
+        }
+        UriWindows created = new UriWindows(now);
+        uri = windows.putIfAbsent(uriId, created);
+        if (uri != null) {
+            return uri;
+        }
+        seedQueue.add(uriId);
+        try {
+            seeder.execute(this::seedPending);
+        } catch (RejectedExecutionException e) {
+            log.debug("Сервис останавливается, буферы окон не заводятся");
+        }
+        return created;
+    }
+
+    // В снимке snapshotHits агрегаты содержат ровно пакеты с номером не больше batch. Запись
+    // останавливается только на время снимка, сами агрегаты читаются уже без блокировки
+    private void seedPending() {
+        List<Integer> uriIds = new ArrayList<>(seedQueue);
+        if (uriIds.isEmpty()) {
+            return;
+        }
+        uriIds.forEach(seedQueue::remove);
+
+        Seed seed;
+        try {
+            seed = seedTransaction.execute(status -> {
+                long batch = rollupRepository.snapshotHits(batches::awaitCurrent);
+                return new Seed(batch, load(uriIds, epochMinute(LocalDateTime.now())));
+            });
+        } catch (RuntimeException e) {
+            // Заготовки убираются: следующее чтение попробует завести буфер снова
+            log.error("Не удалось завести буферы окон для {} uri: {}", uriIds.size(), e.getMessage());
+            uriIds.forEach(uriId -> {
+                UriWindows uri = windows.get(uriId);
+                if (uri != null) {
+                    synchronized (uri) {
+                        if (!uri.isLoaded()) {
+                            uri.retired = true;
+                            windows.remove(uriId, uri);
+                        }
+                    }
+                }
+            });
+            return;
+        }
+
+        long now = epochMinute(LocalDateTime.now());
+        seed.windows().forEach((uriId, loaded) -> {
+            UriWindows uri = windows.get(uriId);
+            if (uri == null) {
+                return;
+            }
+            synchronized (uri) {
+                if (!uri.isLoaded()) {
+                    uri.publish(loaded, seed.batch(), now);
+                }
+            }
+        });
+    }
+
+    private Map<Integer, UriWindows> load(List<Integer> uriIds, long now) {
+        Map<Integer, UriWindows> loaded = new HashMap<>();
+        uriIds.forEach(uriId -> loaded.put(uriId, new UriWindows(now)));
+
+        LocalDateTime current = minuteStart(now);
+        seed(BucketGranularity.MINUTE, current.minusMinutes(MINUTES - 1), uriIds, loaded);
+        seed(BucketGranularity.HOUR, BucketGranularity.HOUR.floor(current).minusHours(HOURS - 1),
+                uriIds, loaded);
+        return loaded;
+    }
+
+    // Бакет, в который попадает rollupFrom, в агрегатах неполон, поэтому он и всё до него — из сырых
+    private void seed(BucketGranularity granularity, LocalDateTime from, List<Integer> uriIds,
+                      Map<Integer, UriWindows> loaded) {
+        LocalDateTime covered = granularity.ceil(rollupService.getRollupFrom());
+        RollupRepository.BucketConsumer consumer = (uriId, bucketStart, hits) ->
+                loaded.get(uriId).seed(granularity, epochMinute(bucketStart), hits);
+        if (covered.isAfter(from)) {
+            rollupRepository.countRawBuckets(granularity, new TimeRange(from, covered), uriIds, consumer);
+            from = covered;
+        }
+        rollupRepository.sumBuckets(granularity, from, uriIds, consumer);
+    }
+
+    private static long epochMinute(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime minuteStart(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    // minute и hour — последние бакеты, до которых прокручены буферы.
+    // early — пакеты, зафиксированные, пока буфер заводится; после заведения null
+    private static class UriWindows {
+        private final long[] minutes = new long[MINUTES];
+        private final long[] hours = new long[HOURS];
+        private long minute;
+        private long hour;
+        private volatile List<Batch> early = new ArrayList<>();
+        private long seededBatch;
+        private volatile long lastAccess = System.nanoTime();
+        private boolean retired;
+
+        UriWindows(long now) {
+            this.minute = now;
+            this.hour = now / 60;
+        }
+
+        boolean isLoaded() {
+            return early == null;
+        }
+
+        void publish(UriWindows seed, long batch, long now) {
+            System.arraycopy(seed.minutes, 0, minutes, 0, MINUTES);
+            System.arraycopy(seed.hours, 0, hours, 0, HOURS);
+            minute = seed.minute;
+            hour = seed.hour;
+            seededBatch = batch;
+            for (Batch pending : early) {
+                if (pending.number() > batch) {
+                    add(pending.hits(), now);
+                }
+            }
+            early = null;
+        }
+
+        void add(List<EndpointHit> hits, long now) {
+            for (EndpointHit hit : hits) {
+                add(epochMinute(hit.getTimestamp()), 1, now);
+            }
+        }
+
+        void add(long hitMinute, long hits, long now) {
+            advance(now);
+            addMinute(hitMinute, hits);
+            addHour(hitMinute / 60, hits);
+        }
+
+        void seed(BucketGranularity granularity, long bucketMinute, long hits) {
+            if (granularity == BucketGranularity.MINUTE) {
+                addMinute(bucketMinute, hits);
+            } else {
+                addHour(bucketMinute / 60, hits);
+            }
+        }
+
+        void advance(long now) {
+            long steps = Math.min(now - minute, MINUTES);
+            for (long i = 1; i <= steps; i++) {
+                minutes[(int) ((minute + i) % MINUTES)] = 0;
+            }
+            minute = Math.max(minute, now);
+
+            long nowHour = now / 60;
+            steps = Math.min(nowHour - hour, HOURS);
+            for (long i = 1; i <= steps; i++) {
+                hours[(int) ((hour + i) % HOURS)] = 0;
+            }
+            hour = Math.max(hour, nowHour);
+        }
+
+        long sumMinutes() {
+            long sum = 0;
+            for (long count : minutes) {
+                sum += count;
+            }
+            return sum;
+        }
+
+        long sumHours(int last) {
+            long sum = 0;
+            for (int i = 0; i < last; i++) {
+                sum += hours[(int) Math.floorMod(hour - i, (long) HOURS)];
+            }
+            return sum;
+        }
+
+        private void addMinute(long bucketMinute, long hits) {
+            if (bucketMinute > minute - MINUTES && bucketMinute <= minute) {
+                minutes[(int) (bucketMinute % MINUTES)] += hits;
+            }
+        }
+
+        private void addHour(long bucketHour, long hits) {
+            if (bucketHour > hour - HOURS && bucketHour <= hour) {
+                hours[(int) (bucketHour % HOURS)] += hits;
+            }
+        }
+    }
+
+    private record Batch(long number, List<EndpointHit> hits) {
+    }
+
+    private record Seed(long batch, Map<Integer, UriWindows> windows) {
+    }
+}
@@ -0,0 +1,217 @@
+package ru.practicum.service.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// HyperLogLog с 2^12 регистрами: стандартная ошибка оценки 1.04 / sqrt(4096) ≈ 1.6%,
+// для малых мощностей (до ~10 тыс.) используется линейный подсчёт, который почти точен.
+// Регистры сериализуются разреженно (индекс + значение), пока заполнено меньше трети.
+// В памяти скетч тоже разреженный, пока заполнено не больше SPARSE_LIMIT регистров: скетчей
+// по парам (app, uri) с единицами посетителей большинство, и плотные 4 КБ на каждый не нужны
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private static final int SPARSE_LIMIT = REGISTERS / 8;
+
+    // Разреженная форма: заполненные регистры как (индекс << 8 | значение) по возрастанию индекса
+    private int[] entries;
+    private int size;
+    // Плотная форма, null пока скетч разреженный
+    private byte[] registers;
+
+    public HyperLogLog() {
+        this.entries = new int[4];
+    }
+
+    private HyperLogLog(int[] entries, int size, byte[] registers) {
+        this.entries = entries;
+        this.size = size;
+        this.registers = registers;
+    }
+
+    public void add(byte[] value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        update(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.registers == null) {
+            for (int i = 0; i < other.size; i++) {
+                update(other.entries[i] >>> 8, (byte) other.entries[i]);
+            }
+            return;
+        }
+        if (registers == null) {
+            toDense();
+        }
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public HyperLogLog copy() {
+        return registers == null
+                ? new HyperLogLog(entries.clone(), size, null)
+                : new HyperLogLog(null, 0, registers.clone());
+    }
+
+    // Регистры перебираются по порядку в обеих формах, чтобы оценка не зависела от формы
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        int next = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            byte register;
+            if (registers != null) {
+                register = registers[i];
+            } else if (next < size && entries[next] >>> 8 == i) {
+                register = (byte) entries[next++];
+            } else {
+                register = 0;
+            }
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        if (registers == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + size * 3);
+            buffer.put(SPARSE);
+            for (int i = 0; i < size; i++) {
+                buffer.putShort((short) (entries[i] >>> 8)).put((byte) entries[i]);
+            }
+            return buffer.array();
+        }
+
+        int filled = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                filled++;
+            }
+        }
+
+        if (filled * 3 >= REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + REGISTERS);
+            buffer.put(DENSE).put(registers);
+            return buffer.array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + filled * 3);
+        buffer.put(SPARSE);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() == DENSE) {
+            byte[] registers = new byte[REGISTERS];
+            buffer.get(registers);
+            return new HyperLogLog(null, 0, registers);
+        }
+        HyperLogLog sketch = new HyperLogLog();
+        while (buffer.hasRemaining()) {
+            int index = buffer.getShort();
+            sketch.update(index, buffer.get());
+        }
+        return sketch;
+    }
+
+    private void update(int index, byte rank) {
+        if (registers != null) {
+            if (registers[index] < rank) {
+                registers[index] = rank;
+            }
+            return;
+        }
+
+        int position = find(index);
+        if (position >= 0) {
+            if ((byte) entries[position] < rank) {
+                entries[position] = index << 8 | rank;
+            }
+            return;
+        }
+        if (size == SPARSE_LIMIT) {
+            toDense();
+            registers[index] = rank;
+            return;
+        }
+        position = -position - 1;
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.min(size * 2, SPARSE_LIMIT));
+        }
+        System.arraycopy(entries, position, entries, position + 1, size - position);
+        entries[position] = index << 8 | rank;
+        size++;
+    }
+
+    // Позиция регистра в entries или (-(точка вставки) - 1), как у Arrays.binarySearch
+    private int find(int index) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = entries[middle] >>> 8;
+            if (current < index) {
+                low = middle + 1;
+            } else if (current > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void toDense() {
+        registers = new byte[REGISTERS];
+        for (int i = 0; i < size; i++) {
+            registers[entries[i] >>> 8] = (byte) entries[i];
+        }
+        entries = null;
+        size = 0;
+    }
+
+    // FNV-1a с финальным перемешиванием из MurmurHash3, чтобы старшие биты были равномерными.
+    // Байт берётся без знака: расширение знака давало массовые совпадения хэшей разных адресов
+    public static long hash(byte[] value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53aef63L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.service.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Space-Saving: не больше capacity счётчиков, при переполнении вытесняется минимальный,
+// а новый ключ наследует его значение. Оценка завышает истинную частоту не больше чем на
+// error, и любой ключ с частотой выше total / capacity гарантированно остаётся в сводке
+public class SpaceSaving {
+
+    private static final Comparator<Counter> COUNTER_ORDER = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(COUNTER_ORDER);
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public record Estimate(long key, long count, long error) {
+    }
+
+    public void add(long key, long weight) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            byCount.add(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+        } else {
+            Counter min = byCount.pollFirst();
+            counters.remove(min.key);
+            counter = new Counter(key, min.count + weight, min.count);
+        }
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    public List<Estimate> estimates() {
+        List<Estimate> result = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            result.add(new Estimate(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    public void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    private static class Counter {
+        private final long key;
+        private long count;
+        private final long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -1,10 +1,99 @@
-CREATE TABLE IF NOT EXISTS endpoint_hits (
-    id BIGSERIAL PRIMARY KEY,
-    app VARCHAR(255) NOT NULL,
-    uri VARCHAR(512) NOT NULL,
-    ip VARCHAR(45) NOT NULL,
-    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+-- Словари сервисов и uri: запросы и агрегаты хранят целочисленные ключи вместо строк
+CREATE TABLE IF NOT EXISTS stat_apps (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+-- event_id заполняется для uri вида /events/{id}, чтобы просмотры события искались по числовому ключу
+CREATE TABLE IF NOT EXISTS stat_uris (
+    id SERIAL PRIMARY KEY,
+    uri VARCHAR(512) NOT NULL UNIQUE,
+    event_id BIGINT GENERATED ALWAYS AS (
+        CASE WHEN uri ~ '^/events/[0-9]{1,18}$' THEN substring(uri FROM 9)::BIGINT END
+    ) STORED
 );
 
+CREATE INDEX IF NOT EXISTS idx_stat_uris_event ON stat_uris(event_id);
+
+-- Таблицы прежнего формата (app и uri строками, ip текстом) CREATE TABLE IF NOT EXISTS не меняет,
+-- поэтому старт останавливается с понятной ошибкой. Перенос запросов:
+--   \copy (SELECT app, uri, ip, to_char(hit_timestamp, 'YYYY-MM-DD HH24:MI:SS') AS timestamp
+--          FROM endpoint_hits) TO 'hits.csv' WITH (FORMAT csv, HEADER)
+-- затем DROP TABLE endpoint_hits, hit_rollups, hit_sketches, view_counters; запуск сервиса
+-- и загрузка файла через POST /admin/stats/hits/import. Тело блока в одинарных кавычках,
+-- чтобы разбор скрипта не делил его по точкам с запятой
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema()
+                 AND table_name IN (''endpoint_hits'', ''hit_rollups'', ''hit_sketches'', ''view_counters'')
+                 AND (column_name IN (''app'', ''uri'')
+                      OR (table_name = ''endpoint_hits'' AND column_name = ''ip'' AND data_type <> ''bytea''))) THEN
+        RAISE EXCEPTION ''Таблицы статистики в прежнем формате (app, uri и ip строками): перенесите запросы по инструкции в schema.sql'';
+    END IF;
+END';
+
+-- Секционирование по времени запроса; секции создаёт и удаляет PartitionMaintenanceService
+CREATE TABLE IF NOT EXISTS endpoint_hits (
+    id BIGSERIAL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, hit_timestamp)
+) PARTITION BY RANGE (hit_timestamp);
+
 CREATE INDEX IF NOT EXISTS idx_endpoint_hits_timestamp ON endpoint_hits(hit_timestamp);
-CREATE INDEX IF NOT EXISTS idx_endpoint_hits_app_uri ON endpoint_hits(app, uri);
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_uri_timestamp ON endpoint_hits(uri_id, hit_timestamp);
+
+-- Поминутные, почасовые и посуточные агрегаты числа запросов
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    granularity VARCHAR(6) NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, app_id, uri_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_rollups_uri ON hit_rollups(granularity, uri_id, bucket_start);
+
+-- rollup_from: начиная с этого момента все запросы учтены в hit_rollups
+CREATE TABLE IF NOT EXISTS stats_rollup_state (
+    id SMALLINT PRIMARY KEY,
+    rollup_from TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- Суточные HyperLogLog-скетчи IP для уникальных посещений
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    registers BYTEA NOT NULL,
+    PRIMARY KEY (bucket_start, app_id, uri_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_sketches_uri ON hit_sketches(uri_id, bucket_start);
+
+-- Снимки счётчиков просмотров за всё время, которые ViewCounterService держит в памяти
+CREATE TABLE IF NOT EXISTS view_counters (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits BIGINT NOT NULL,
+    registers BYTEA NOT NULL,
+    PRIMARY KEY (uri_id, app_id)
+);
+
+-- Контрольная точка пересчёта агрегатов: next_from — начало следующих суток для обработки
+CREATE TABLE IF NOT EXISTS rollup_backfill (
+    id SMALLINT PRIMARY KEY,
+    range_from TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    range_to TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    next_from TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    chunks BIGINT NOT NULL,
+    throttle_ms BIGINT NOT NULL,
+    started_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    error VARCHAR(1024)
+);
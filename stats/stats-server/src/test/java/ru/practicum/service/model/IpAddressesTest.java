@@ -0,0 +1,51 @@
+package ru.practicum.service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IpAddressesTest {
+
+    @Test
+    void ipv4IsFourBytes() {
+        assertArrayEquals(new byte[]{(byte) 192, (byte) 168, 0, 1}, IpAddresses.toBytes(" 192.168.0.1 "));
+    }
+
+    // Для литералов InetAddress.getByName не обращается к DNS, поэтому служит эталоном
+    @Test
+    void ipv6MatchesInetAddress() throws Exception {
+        for (String ip : new String[]{"::", "::1", "1::", "2001:db8::8a2e:370:7334", "2001:DB8:0:0:0:0:0:1",
+                "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8", "fe80::1:2", "::1.2.3.4", "64:ff9b::192.0.2.33",
+                "1:2:3:4:5:6:1.2.3.4"}) {
+            assertArrayEquals(InetAddress.getByName(ip).getAddress(), IpAddresses.toBytes(ip), ip);
+        }
+    }
+
+    // Как и прежде через InetAddress, IPv4-mapped адрес совпадает с тем же IPv4
+    @Test
+    void ipv4MappedIsStoredAsIpv4() {
+        assertArrayEquals(IpAddresses.toBytes("10.0.0.1"), IpAddresses.toBytes("::ffff:10.0.0.1"));
+        assertArrayEquals(IpAddresses.toBytes("10.0.0.1"), IpAddresses.toBytes("::ffff:a00:1"));
+    }
+
+    @Test
+    void roundTrip() {
+        for (String ip : new String[]{"10.20.30.40", "2001:db8:0:0:0:0:0:1"}) {
+            assertEquals(ip, IpAddresses.toString(IpAddresses.toBytes(ip)));
+        }
+    }
+
+    // Имена хостов и зоны не разбираются, а отклоняются без обращения к DNS
+    @Test
+    void rejectsNonLiterals() {
+        for (String ip : new String[]{"localhost", "example.com:80", "1:2:3:4:5:6:7:8:9", "1::2::3", ":1::",
+                "1::2:", "12345::", "g::1", "fe80::1%eth0", "[::1]", "1:2:3:4:5:6:7", "::1.2.3",
+                "1.2.3.4::", "256.1.1.1", "1.2.3", "::ffff:1.2.3.256", "١٢.0.0.1"}) {
+            assertThrows(IllegalArgumentException.class, () -> IpAddresses.toBytes(ip), ip);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowPlanTest {
+
+    @Test
+    void wholeDaysAreOneDayRange() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 4, 0, 0);
+
+        WindowPlan plan = WindowPlan.of(from, to);
+
+        assertTrue(plan.rawRanges().isEmpty());
+        assertEquals(List.of(new WindowPlan.BucketRange(BucketGranularity.DAY, new TimeRange(from, to))),
+                plan.bucketRanges());
+    }
+
+    @Test
+    void windowInsideOneMinuteIsRawOnly() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 10, 15, 5);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 1, 10, 15, 55);
+
+        WindowPlan plan = WindowPlan.of(from, to);
+
+        assertEquals(List.of(new TimeRange(from, to)), plan.rawRanges());
+        assertTrue(plan.bucketRanges().isEmpty());
+    }
+
+    @Test
+    void emptyWindowHasNoRanges() {
+        LocalDateTime at = LocalDateTime.of(2024, 3, 1, 10, 15, 5);
+
+        WindowPlan plan = WindowPlan.of(at, at);
+
+        assertTrue(plan.rawRanges().isEmpty());
+        assertTrue(plan.bucketRanges().isEmpty());
+    }
+
+    @Test
+    void unalignedWindowIsSplitIntoEdgesAndDays() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 22, 30, 15);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 4, 1, 45, 30);
+
+        WindowPlan plan = WindowPlan.of(from, to);
+
+        assertEquals(List.of(
+                new TimeRange(from, LocalDateTime.of(2024, 3, 1, 22, 31)),
+                new TimeRange(LocalDateTime.of(2024, 3, 4, 1, 45), to)), plan.rawRanges());
+        assertEquals(List.of(
+                bucket(BucketGranularity.MINUTE, LocalDateTime.of(2024, 3, 1, 22, 31), LocalDateTime.of(2024, 3, 1, 23, 0)),
+                bucket(BucketGranularity.HOUR, LocalDateTime.of(2024, 3, 1, 23, 0), LocalDateTime.of(2024, 3, 2, 0, 0)),
+                bucket(BucketGranularity.DAY, LocalDateTime.of(2024, 3, 2, 0, 0), LocalDateTime.of(2024, 3, 4, 0, 0)),
+                bucket(BucketGranularity.HOUR, LocalDateTime.of(2024, 3, 4, 0, 0), LocalDateTime.of(2024, 3, 4, 1, 0)),
+                bucket(BucketGranularity.MINUTE, LocalDateTime.of(2024, 3, 4, 1, 0), LocalDateTime.of(2024, 3, 4, 1, 45))),
+                plan.bucketRanges());
+    }
+
+    @Test
+    void windowShorterThanDayUsesHoursAndMinutes() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 10, 15);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 1, 12, 30);
+
+        WindowPlan plan = WindowPlan.of(from, to);
+
+        assertTrue(plan.rawRanges().isEmpty());
+        assertEquals(List.of(
+                bucket(BucketGranularity.MINUTE, from, LocalDateTime.of(2024, 3, 1, 11, 0)),
+                bucket(BucketGranularity.HOUR, LocalDateTime.of(2024, 3, 1, 11, 0), LocalDateTime.of(2024, 3, 1, 12, 0)),
+                bucket(BucketGranularity.MINUTE, LocalDateTime.of(2024, 3, 1, 12, 0), to)),
+                plan.bucketRanges());
+    }
+
+    // Диапазоны плана не пересекаются, без пропусков покрывают окно и выровнены по своим бакетам
+    @Test
+    void rangesTileWindowExactly() {
+        LocalDateTime base = LocalDateTime.of(2024, 2, 27, 0, 0);
+        long[] offsetsSeconds = {0, 1, 59, 60, 61, 3599, 3600, 3661, 86399, 86400, 90061, 200000};
+        for (long fromOffset : offsetsSeconds) {
+            for (long length : offsetsSeconds) {
+                LocalDateTime from = base.plusSeconds(fromOffset).plusNanos(fromOffset % 7 * 1000);
+                LocalDateTime to = from.plusSeconds(length * 3 + 17);
+                assertTiles(from, to, WindowPlan.of(from, to));
+            }
+        }
+    }
+
+    private static void assertTiles(LocalDateTime from, LocalDateTime to, WindowPlan plan) {
+        List<TimeRange> ranges = new ArrayList<>(plan.rawRanges());
+        for (WindowPlan.BucketRange bucket : plan.bucketRanges()) {
+            BucketGranularity granularity = bucket.granularity();
+            TimeRange range = bucket.range();
+            assertEquals(granularity.floor(range.from()), range.from(), "начало " + bucket);
+            assertEquals(granularity.floor(range.to()), range.to(), "конец " + bucket);
+            ranges.add(range);
+        }
+        // По сырым данным считается только то, что не содержит ни одной целой минуты
+        for (TimeRange raw : plan.rawRanges()) {
+            LocalDateTime firstMinute = BucketGranularity.MINUTE.ceil(raw.from());
+            assertTrue(BucketGranularity.MINUTE.next(firstMinute).isAfter(raw.to()),
+                    "сырой край содержит целую минуту: " + raw);
+        }
+
+        ranges.sort(Comparator.comparing(TimeRange::from));
+        LocalDateTime cursor = from;
+        for (TimeRange range : ranges) {
+            assertTrue(!range.isEmpty(), "пустой диапазон " + range);
+            assertEquals(cursor, range.from(), "разрыв или пересечение в окне " + from + " - " + to);
+            cursor = range.to();
+        }
+        assertEquals(to, cursor);
+    }
+
+    private static WindowPlan.BucketRange bucket(BucketGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        return new WindowPlan.BucketRange(granularity, new TimeRange(from, to));
+    }
+}
@@ -0,0 +1,165 @@
+package ru.practicum.service.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private static final int REGISTERS = 1 << HyperLogLog.PRECISION;
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void duplicatesDoNotChangeEstimate() {
+        HyperLogLog once = sketch(0, 500);
+        HyperLogLog repeated = sketch(0, 500);
+        for (int i = 0; i < 10; i++) {
+            add(repeated, 0, 500);
+        }
+
+        assertArrayEquals(once.toBytes(), repeated.toBytes());
+    }
+
+    // Линейный подсчёт на малых мощностях почти точен
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        for (int count : new int[]{1, 10, 100, 1000}) {
+            long estimate = sketch(0, count).estimate();
+            assertEquals(count, estimate, Math.max(1, count * 0.02), "мощность " + count);
+        }
+    }
+
+    @Test
+    void largeCardinalityWithinThreeStandardErrors() {
+        for (int count : new int[]{20_000, 100_000, 1_000_000}) {
+            long estimate = sketch(0, count).estimate();
+            assertEquals(count, estimate, count * 3 * HyperLogLog.STANDARD_ERROR, "мощность " + count);
+        }
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog left = sketch(0, 50_000);
+        HyperLogLog right = sketch(25_000, 75_000);
+
+        left.merge(right);
+
+        assertArrayEquals(sketch(0, 75_000).toBytes(), left.toBytes());
+    }
+
+    // Разреженный в памяти скетч сливается с плотным в любом порядке
+    @Test
+    void mergeOfSparseAndDenseEqualsSketchOfUnion() {
+        HyperLogLog sparse = sketch(0, 100);
+        HyperLogLog dense = sketch(100, 50_000);
+
+        HyperLogLog sparseFirst = sparse.copy();
+        sparseFirst.merge(dense);
+        HyperLogLog denseFirst = dense.copy();
+        denseFirst.merge(sparse);
+
+        assertArrayEquals(sketch(0, 50_000).toBytes(), sparseFirst.toBytes());
+        assertArrayEquals(sketch(0, 50_000).toBytes(), denseFirst.toBytes());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        HyperLogLog original = sketch(0, 100);
+        HyperLogLog copy = original.copy();
+        add(copy, 100, 10_000);
+
+        assertArrayEquals(sketch(0, 100).toBytes(), original.toBytes());
+    }
+
+    // Формат hit_sketches и view_counters: первый байт — вид кодировки, разреженная запись —
+    // тройки (индекс short, значение byte), плотная — все регистры подряд
+    @Test
+    void sparseEncodingRoundTrip() {
+        HyperLogLog sketch = sketch(0, 100);
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(0, bytes[0]);
+        assertEquals(0, (bytes.length - 1) % 3);
+        assertTrue(bytes.length < 1 + REGISTERS);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void denseEncodingRoundTrip() {
+        HyperLogLog sketch = sketch(0, 100_000);
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(1, bytes[0]);
+        assertEquals(1 + REGISTERS, bytes.length);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void emptySketchRoundTrip() {
+        byte[] bytes = new HyperLogLog().toBytes();
+
+        assertArrayEquals(new byte[]{0}, bytes);
+        assertEquals(0, HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    // Последний регистр и наибольший ранг переживают разреженную запись
+    @Test
+    void sparseEncodingKeepsLastRegister() {
+        HyperLogLog sketch = new HyperLogLog();
+        long lastRegister = (long) (REGISTERS - 1) << (64 - HyperLogLog.PRECISION);
+        sketch.addHash(lastRegister | 1);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+        assertEquals(1, restored.estimate());
+    }
+
+    // Переход между кодировками по порогу заполнения не меняет регистры
+    @Test
+    void encodingsAgreeAroundThreshold() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i += 50) {
+            add(sketch, i, i + 50);
+            HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+            assertEquals(sketch.estimate(), restored.estimate());
+            assertArrayEquals(sketch.toBytes(), restored.toBytes());
+        }
+    }
+
+    // Разные IPv4-адреса не должны давать одинаковый хэш
+    @Test
+    void hashHasNoCollisionsOnSequentialAddresses() {
+        Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            hashes.add(HyperLogLog.hash(ByteBuffer.allocate(4).putInt(i).array()));
+        }
+
+        assertEquals(200_000, hashes.size());
+    }
+
+    private static HyperLogLog sketch(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        add(sketch, from, to);
+        return sketch;
+    }
+
+    // Значения — IPv4-адреса в том же виде, что хранятся в endpoint_hits.ip
+    private static void add(HyperLogLog sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sketch.add(ByteBuffer.allocate(4).putInt(i).array());
+        }
+    }
+}
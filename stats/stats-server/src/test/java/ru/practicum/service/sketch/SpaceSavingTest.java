@@ -0,0 +1,135 @@
+package ru.practicum.service.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsAreExactWhileUnderCapacity() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.add(1, 5);
+        summary.add(2, 3);
+        summary.add(1, 2);
+
+        Map<Long, SpaceSaving.Estimate> estimates = byKey(summary);
+
+        assertEquals(2, estimates.size());
+        assertEquals(new SpaceSaving.Estimate(1, 7, 0), estimates.get(1L));
+        assertEquals(new SpaceSaving.Estimate(2, 3, 0), estimates.get(2L));
+    }
+
+    // Новый ключ вытесняет минимальный счётчик и наследует его значение как погрешность
+    @Test
+    void newKeyReplacesMinimumAndInheritsItsCount() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add(1, 5);
+        summary.add(2, 3);
+        summary.add(3, 1);
+
+        Map<Long, SpaceSaving.Estimate> estimates = byKey(summary);
+
+        assertEquals(2, estimates.size());
+        assertEquals(new SpaceSaving.Estimate(1, 5, 0), estimates.get(1L));
+        assertEquals(new SpaceSaving.Estimate(3, 4, 3), estimates.get(3L));
+    }
+
+    // При равных значениях вытесняется меньший ключ: порядок вытеснения детерминирован
+    @Test
+    void tiesAreEvictedBySmallerKey() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add(7, 1);
+        summary.add(3, 1);
+        summary.add(9, 1);
+
+        assertEquals(Map.of(7L, 1L, 9L, 2L), byKey(summary).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().count())));
+    }
+
+    // Оценка не меньше истинной частоты, а count - error не больше неё
+    @Test
+    void estimatesBoundTrueCounts() {
+        Random random = new Random(42);
+        SpaceSaving summary = new SpaceSaving(50);
+        Map<Long, Long> truth = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = zipf(random, 5_000);
+            summary.add(key, 1);
+            truth.merge(key, 1L, Long::sum);
+        }
+
+        for (SpaceSaving.Estimate estimate : summary.estimates()) {
+            long actual = truth.get(estimate.key());
+            assertTrue(estimate.count() >= actual, "оценка меньше истинной для " + estimate.key());
+            assertTrue(estimate.count() - estimate.error() <= actual, "нижняя граница выше истинной для "
+                    + estimate.key());
+        }
+    }
+
+    // Ключ с частотой выше total / capacity обязан остаться в сводке
+    @Test
+    void heavyHittersAreRetained() {
+        Random random = new Random(7);
+        int capacity = 20;
+        long total = 50_000;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<Long, Long> truth = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            long key = zipf(random, 10_000);
+            summary.add(key, 1);
+            truth.merge(key, 1L, Long::sum);
+        }
+
+        Map<Long, SpaceSaving.Estimate> estimates = byKey(summary);
+        long heavy = truth.entrySet().stream().filter(entry -> entry.getValue() > total / capacity).count();
+        assertTrue(heavy > 0);
+        truth.forEach((key, count) -> {
+            if (count > total / capacity) {
+                assertTrue(estimates.containsKey(key), "частый ключ " + key + " вытеснен");
+            }
+        });
+    }
+
+    // Сумма оценок равна сумме весов: вытеснение переносит значение, а не теряет его
+    @Test
+    void totalWeightIsPreserved() {
+        SpaceSaving summary = new SpaceSaving(3);
+        long total = 0;
+        for (long key = 0; key < 100; key++) {
+            summary.add(key % 17, key + 1);
+            total += key + 1;
+        }
+
+        assertEquals(total, summary.estimates().stream().mapToLong(SpaceSaving.Estimate::count).sum());
+    }
+
+    @Test
+    void clearForgetsAllCounters() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add(1, 5);
+        summary.add(2, 3);
+
+        summary.clear();
+        summary.add(3, 1);
+
+        assertEquals(List.of(new SpaceSaving.Estimate(3, 1, 0)), summary.estimates());
+    }
+
+    private static Map<Long, SpaceSaving.Estimate> byKey(SpaceSaving summary) {
+        return summary.estimates().stream()
+                .collect(Collectors.toMap(SpaceSaving.Estimate::key, estimate -> estimate));
+    }
+
+    // Приближённое распределение Ципфа: частота ключа обратно пропорциональна его рангу
+    private static long zipf(Random random, int keys) {
+        return (long) Math.floor(Math.pow(keys + 1, random.nextDouble())) - 1;
+    }
+}